@@ -0,0 +1,123 @@
+package i5.las2peer.services.gitHubProxyService.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import i5.las2peer.services.gitHubProxyService.gitUtils.GitHelper;
+
+/**
+ * Measures the read operations of the {@link GitHelper} on a synthetic repository. Loading all
+ * traced files is measured both file by file, as getAllTracedFiles did before reading from the
+ * tree directly, and in a single pass over the tree.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GitHelperBenchmark {
+
+  @Param({"200", "2000"})
+  public int fileCount;
+
+  @Param({"100"})
+  public int tracedFileCount;
+
+  @Param({"10"})
+  public int historyDepth;
+
+  private SyntheticRepository syntheticRepository;
+  private Git git;
+  private Repository repository;
+  private String fileName;
+
+  @Setup
+  public void createRepository() throws Exception {
+    syntheticRepository = new SyntheticRepository("benchmark-gitHelper-" + fileCount + "-"
+        + tracedFileCount + "-" + historyDepth, fileCount, tracedFileCount, historyDepth);
+    git = GitHelper.getLocalGit(syntheticRepository.getRepositoryName(), null);
+    repository = git.getRepository();
+    List<String> fileNames = syntheticRepository.getFileNames();
+    fileName = fileNames.get(fileNames.size() / 2);
+  }
+
+  @TearDown
+  public void deleteRepository() throws Exception {
+    git.close();
+    syntheticRepository.delete();
+  }
+
+  @Benchmark
+  public Repository getLocalGit() throws Exception {
+    try (Git pooledGit = GitHelper.getLocalGit(syntheticRepository.getRepositoryName(), null)) {
+      return pooledGit.getRepository();
+    }
+  }
+
+  @Benchmark
+  public String getFileContent() throws Exception {
+    return GitHelper.getFileContent(repository, fileName);
+  }
+
+  @Benchmark
+  public int getRepositoryTreeWalk() throws Exception {
+    int count = 0;
+    try (TreeWalk treeWalk = GitHelper.getRepositoryTreeWalk(repository, true)) {
+      while (treeWalk.next()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public void loadTracedFilesFileByFile(Blackhole blackhole) throws Exception {
+    JSONArray tracedFiles = (JSONArray) ((JSONObject) new JSONParser()
+        .parse(GitHelper.getFileContent(repository, "traces/tracedFiles.json"))).get("tracedFiles");
+    try (TreeWalk treeWalk = GitHelper.getRepositoryTreeWalk(repository, true)) {
+      while (treeWalk.next()) {
+        String path = treeWalk.getPathString();
+        if (tracedFiles.contains(path)) {
+          blackhole.consume(GitHelper.getFileContent(repository, path));
+          blackhole.consume(GitHelper.getFileContent(repository, "traces/tracedFiles.json"));
+          blackhole.consume(GitHelper.getFileContent(repository, "traces/" + path + ".traces"));
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void loadTracedFilesSinglePass(Blackhole blackhole) throws Exception {
+    RevTree tree = GitHelper.getBranchTree(repository, "development");
+    List<String> neededFileNames = new ArrayList<String>();
+    for (String tracedFileName : syntheticRepository.getTracedFileNames()) {
+      neededFileNames.add(tracedFileName);
+      neededFileNames.add("traces/" + tracedFileName + ".traces");
+    }
+    Map<String, ObjectId> blobIds = GitHelper.getBlobIds(repository, tree, neededFileNames);
+    for (ObjectId blobId : blobIds.values()) {
+      blackhole.consume(GitHelper.getBlobContent(repository, blobId));
+    }
+  }
+
+}
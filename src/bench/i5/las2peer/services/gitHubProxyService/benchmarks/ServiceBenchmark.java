@@ -0,0 +1,159 @@
+package i5.las2peer.services.gitHubProxyService.benchmarks;
+
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import i5.las2peer.restMapper.HttpResponse;
+import i5.las2peer.services.gitHubProxyService.GitHubProxyService;
+import i5.las2peer.services.gitHubProxyService.gitUtils.GitHelper;
+
+/**
+ * Measures the read, commit and push latency of the service on a synthetic repository, whose
+ * remote is a local bare repository. The service methods are invoked directly, without a
+ * las2peer node.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ServiceBenchmark {
+
+  @Param({"200", "2000"})
+  public int fileCount;
+
+  @Param({"100"})
+  public int tracedFileCount;
+
+  @Param({"10"})
+  public int historyDepth;
+
+  private SyntheticRepository syntheticRepository;
+  private GitHubProxyService service;
+  private String repositoryName;
+  private String fileName;
+  private int revision = 0;
+
+  @Setup
+  public void createRepository() throws Exception {
+    repositoryName = "benchmark-service-" + fileCount + "-" + tracedFileCount + "-" + historyDepth;
+    syntheticRepository =
+        new SyntheticRepository(repositoryName, fileCount, tracedFileCount, historyDepth);
+    service = new GitHubProxyService();
+    // no background fetches, evictions or garbage collections during the measurements
+    GitHelper.stopBackgroundWork();
+    fileName = syntheticRepository.getTracedFileNames().get(0);
+
+    // a benchmark of an error response would be meaningless
+    checkStatus("getFileInRepository", getFileInRepository(), HttpURLConnection.HTTP_OK);
+    checkStatus("getFileInRepositoryNotModified", getFileInRepositoryNotModified(),
+        HttpURLConnection.HTTP_NOT_MODIFIED);
+    checkStatus("getSegmentOfModelId", getSegmentOfModelId(), HttpURLConnection.HTTP_OK);
+    checkStatus("listFilesRecursively", listFilesRecursively(), HttpURLConnection.HTTP_OK);
+    checkStatus("storeAndCommitFle", storeAndCommitFle(), HttpURLConnection.HTTP_OK);
+    int tracedFiles = getAllTracedFiles().size();
+    if (tracedFiles != syntheticRepository.getTracedFileNames().size()) {
+      throw new IllegalStateException("getAllTracedFiles returned " + tracedFiles + " instead of "
+          + syntheticRepository.getTracedFileNames().size() + " files");
+    }
+  }
+
+  @TearDown
+  public void deleteRepository() throws Exception {
+    service.close();
+    syntheticRepository.delete();
+  }
+
+  private static void checkStatus(String benchmark, HttpResponse response, int status) {
+    if (response.getStatus() != status) {
+      throw new IllegalStateException(benchmark + " responded with " + response.getStatus()
+          + " instead of " + status + ": " + response.getResult());
+    }
+  }
+
+  /**
+   * Store and commit a new revision of a traced file
+   *
+   * @return The response of the service
+   */
+
+  @SuppressWarnings("unchecked")
+  private HttpResponse commitFile() {
+    revision++;
+    JSONObject traces = SyntheticRepository.getFileTraces(0);
+    traces.put("generationId", SyntheticRepository.GENERATION_ID);
+
+    JSONObject content = new JSONObject();
+    content.put("filename", fileName);
+    content.put("content", Base64.getEncoder().encodeToString(
+        SyntheticRepository.getFileContent(fileName, revision).getBytes(StandardCharsets.UTF_8)));
+    content.put("commitMessage", "Benchmark revision " + revision);
+    content.put("traces", traces);
+    return service.storeAndCommitFle(repositoryName, content.toJSONString());
+  }
+
+  /**
+   * A commit made before each push, so that every push has something to transfer
+   */
+
+  @State(Scope.Thread)
+  public static class PendingCommit {
+
+    @Setup(Level.Invocation)
+    public void commit(ServiceBenchmark benchmark) {
+      benchmark.commitFile();
+    }
+  }
+
+  @Benchmark
+  public HashMap<String, JSONObject> getAllTracedFiles() {
+    return service.getAllTracedFiles(repositoryName);
+  }
+
+  @Benchmark
+  public HttpResponse getFileInRepository() {
+    return service.getFileInRepository(repositoryName, fileName, null);
+  }
+
+  @Benchmark
+  public HttpResponse getFileInRepositoryNotModified() {
+    // matches any entity tag, measuring the revalidation of a polling client
+    return service.getFileInRepository(repositoryName, fileName, "*");
+  }
+
+  @Benchmark
+  public HttpResponse getSegmentOfModelId() {
+    return service.getSegmentOfModelId(repositoryName, "model" + (tracedFileCount - 1));
+  }
+
+  @Benchmark
+  public HttpResponse listFilesRecursively() {
+    // the first page of the whole tree, as loaded by the editor
+    return service.listFilesInRepository(repositoryName, null, "true", "500", null, null);
+  }
+
+  @Benchmark
+  public HttpResponse storeAndCommitFle() {
+    return commitFile();
+  }
+
+  @Benchmark
+  public void mergeAndPush(PendingCommit pendingCommit) throws Exception {
+    GitHelper.mergeIntoMasterBranch(repositoryName, null, "master", null);
+  }
+
+}
@@ -0,0 +1,181 @@
+package i5.las2peer.services.gitHubProxyService.benchmarks;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.RefSpec;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import i5.las2peer.services.gitHubProxyService.gitUtils.GitHelper;
+
+/**
+ * Generates a local repository of a configurable size, laid out like the repositories of generated
+ * components: source files, a trace file per traced file, the trace model
+ * <code>traces/tracedFiles.json</code> and a history of the given depth. A local bare repository
+ * is used as its remote, so that fetching and pushing do not leave the machine.
+ */
+
+public class SyntheticRepository {
+
+  public static final String GENERATION_ID = "benchmark-generation";
+  public static final String AUTHOR_NAME = "benchmark";
+  public static final String AUTHOR_MAIL = "benchmark@example.org";
+
+  private final String repositoryName;
+  private final File directory;
+  private final File remoteDirectory;
+  private final List<String> fileNames = new ArrayList<String>();
+  private final List<String> tracedFileNames = new ArrayList<String>();
+
+  /**
+   * Generate a repository. It is created at the path the {@link GitHelper} expects a repository of
+   * the given name at, with the development branch checked out.
+   *
+   * @param repositoryName The name of the repository
+   * @param fileCount The number of source files
+   * @param tracedFileCount The number of source files with a trace file, at most fileCount
+   * @param historyDepth The number of commits
+   * @throws Exception Thrown if the repository could not be created
+   */
+
+  public SyntheticRepository(String repositoryName, int fileCount, int tracedFileCount,
+      int historyDepth) throws Exception {
+    this.repositoryName = repositoryName;
+    this.directory = new File(repositoryName);
+    this.remoteDirectory = Files.createTempDirectory(repositoryName + "-remote").toFile();
+    FileUtils.deleteDirectory(directory);
+
+    for (int i = 0; i < fileCount; i++) {
+      fileNames.add("src/package" + (i % 16) + "/File" + i + ".java");
+    }
+    tracedFileNames.addAll(fileNames.subList(0, Math.min(tracedFileCount, fileCount)));
+
+    Git.init().setBare(true).setDirectory(remoteDirectory).call().close();
+    try (Git git = Git.init().setDirectory(directory).call()) {
+      writeInitialFiles();
+      git.add().addFilepattern(".").call();
+      git.commit().setAuthor(AUTHOR_NAME, AUTHOR_MAIL).setMessage("Initial commit").call();
+
+      // every further commit changes one of the files
+      for (int commit = 1; commit < historyDepth; commit++) {
+        String fileName = fileNames.get(commit % fileNames.size());
+        write(fileName, getFileContent(fileName, commit));
+        git.add().addFilepattern(fileName).call();
+        git.commit().setAuthor(AUTHOR_NAME, AUTHOR_MAIL).setMessage("Change " + fileName).call();
+      }
+
+      StoredConfig config = git.getRepository().getConfig();
+      config.setString("remote", "origin", "url", remoteDirectory.getAbsolutePath());
+      config.setString("remote", "origin", "fetch", "+refs/heads/*:refs/remotes/origin/*");
+      config.save();
+      git.push().setRemote("origin").setRefSpecs(new RefSpec("refs/heads/master")).call();
+
+      git.checkout().setCreateBranch(true).setName("development").call();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void writeInitialFiles() throws Exception {
+    JSONArray tracedFiles = new JSONArray();
+    JSONObject modelsToFiles = new JSONObject();
+    for (int i = 0; i < fileNames.size(); i++) {
+      String fileName = fileNames.get(i);
+      write(fileName, getFileContent(fileName, 0));
+
+      if (i < tracedFileNames.size()) {
+        tracedFiles.add(fileName);
+        write("traces/" + fileName + ".traces", getFileTraces(i).toJSONString());
+
+        JSONArray modelFiles = new JSONArray();
+        modelFiles.add(fileName);
+        JSONObject modelToFiles = new JSONObject();
+        modelToFiles.put("files", modelFiles);
+        modelsToFiles.put("model" + i, modelToFiles);
+      }
+    }
+
+    JSONObject traceModel = new JSONObject();
+    traceModel.put("id", GENERATION_ID);
+    traceModel.put("tracedFiles", tracedFiles);
+    traceModel.put("modelsToFile", modelsToFiles);
+    write("traces/tracedFiles.json", traceModel.toJSONString());
+  }
+
+  /**
+   * Get the traces of a traced file, with one model element per traced file
+   *
+   * @param index The index of the traced file
+   * @return The traces of the file
+   */
+
+  @SuppressWarnings("unchecked")
+  public static JSONObject getFileTraces(int index) {
+    JSONArray segments = new JSONArray();
+    segments.add("segment" + index);
+    JSONObject modelTraces = new JSONObject();
+    modelTraces.put("segments", segments);
+    JSONObject traces = new JSONObject();
+    traces.put("model" + index, modelTraces);
+
+    JSONObject fileTraces = new JSONObject();
+    fileTraces.put("traces", traces);
+    fileTraces.put("traceSegments", new JSONObject());
+    return fileTraces;
+  }
+
+  /**
+   * Get a generated file content
+   *
+   * @param fileName The name of the file
+   * @param revision The revision of the file
+   * @return The content of the file
+   */
+
+  public static String getFileContent(String fileName, int revision) {
+    StringBuilder content = new StringBuilder();
+    content.append("// ").append(fileName).append(", revision ").append(revision).append('\n');
+    for (int line = 0; line < 50; line++) {
+      content.append("// generated line ").append(line).append('\n');
+    }
+    return content.toString();
+  }
+
+  private void write(String fileName, String content) throws Exception {
+    File file = new File(directory, fileName);
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public String getRepositoryName() {
+    return repositoryName;
+  }
+
+  public List<String> getFileNames() {
+    return fileNames;
+  }
+
+  public List<String> getTracedFileNames() {
+    return tracedFileNames;
+  }
+
+  /**
+   * Delete the repository and its remote. The repository is closed and removed from the
+   * repository pool first.
+   *
+   * @throws Exception Thrown if the repository could not be deleted
+   */
+
+  public void delete() throws Exception {
+    GitHelper.invalidateRepository(repositoryName);
+    FileUtils.deleteDirectory(directory);
+    FileUtils.deleteDirectory(remoteDirectory);
+  }
+
+}
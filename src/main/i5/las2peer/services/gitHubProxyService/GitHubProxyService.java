@@ -1,30 +1,43 @@
 package i5.las2peer.services.gitHubProxyService;
 
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Serializable;
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 
-import org.apache.commons.io.FileUtils;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
@@ -34,7 +47,19 @@ import i5.las2peer.restMapper.HttpResponse;
 import i5.las2peer.restMapper.MediaType;
 import i5.las2peer.restMapper.RESTService;
 import i5.las2peer.restMapper.annotations.ContentParam;
+import i5.las2peer.services.gitHubProxyService.gitUtils.ETags;
 import i5.las2peer.services.gitHubProxyService.gitUtils.GitHelper;
+import i5.las2peer.services.gitHubProxyService.gitUtils.MultiFileCommit;
+import i5.las2peer.services.gitHubProxyService.gitUtils.PushScheduler;
+import i5.las2peer.services.gitHubProxyService.gitUtils.RepositoryLockManager.LockHandle;
+import i5.las2peer.services.gitHubProxyService.gitUtils.RepositoryWarmup;
+import i5.las2peer.services.gitHubProxyService.gitUtils.TreeListing;
+import i5.las2peer.services.gitHubProxyService.jsonUtils.JsonWriter;
+import i5.las2peer.services.gitHubProxyService.metrics.MetricsRegistry;
+import i5.las2peer.services.gitHubProxyService.traceUtils.ModelCheck;
+import i5.las2peer.services.gitHubProxyService.traceUtils.SegmentIndex;
+import i5.las2peer.services.gitHubProxyService.traceUtils.TraceModel;
+import i5.las2peer.services.gitHubProxyService.traceUtils.TraceModelCache;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
@@ -72,27 +97,249 @@ public class GitHubProxyService extends RESTService {
 
   private static final L2pLogger logger = L2pLogger.getInstance(GitHubProxyService.class.getName());
 
+  private static final String REQUEST_DURATION = "githubproxy_request_duration_seconds";
+  private static final String REQUESTS = "githubproxy_requests_total";
+  private static final MetricsRegistry metrics = MetricsRegistry.getInstance();
+
   private String gitHubUser;
   private String gitHubPassword;
   private String gitHubOrganization;
   private String gitHubUserMail;
   private boolean useModelCheck;
-  
+  private int repositoryPoolMaxOpen = 64;
+  private int repositoryPoolIdleTimeout = 600;
+  private int traceModelCacheSize = 1024;
+  private int pushThreads = 2;
+  private int pushMaxAttempts = 3;
+  private int pushRetryDelay = 10;
+  private int remoteRepositoryCacheTtl = 300;
+  private int remoteRepositoryCacheNegativeTtl = 30;
+  private int cloneTimeout = 300;
+  private String cloneMode = "full";
+  private String warmupRepositories = "";
+  private boolean warmupLocalRepositories = false;
+  private int warmupThreads = 4;
+  private int backgroundFetchThreads = 2;
+  private int backgroundFetchMinInterval = 60;
+  private int backgroundFetchMaxInterval = 900;
+  private int backgroundFetchIdleTimeout = 3600;
+  private String repositoryRoot = "";
+  private int diskQuota = 0;
+  private int diskQuotaCheckInterval = 600;
+  private int gcLooseObjectThreshold = 1000;
+  private int gcPackFileThreshold = 20;
+  private int gcCheckInterval = 300;
+  private int modelCheckCacheSize = 256;
+  private int modelCheckTimeout = 10;
+  private int modelCheckFailureThreshold = 3;
+  private int modelCheckOpenDuration = 30;
+  private int maxListingPageSize = 1000;
+  private int treeListingCacheSize = 16;
+
   private UsernamePasswordCredentialsProvider cp;
+  private final TraceModelCache traceModelCache;
+  private final ModelCheck modelCheck;
+  private final ConcurrentHashMap<String, TraceModel> traceModels =
+      new ConcurrentHashMap<String, TraceModel>();
+  private final ConcurrentHashMap<String, SegmentIndex> segmentIndexes =
+      new ConcurrentHashMap<String, SegmentIndex>();
+  private final LinkedHashMap<String, TreeListing> treeListings;
+  private final PushScheduler pushScheduler;
+  private final RepositoryWarmup warmup = new RepositoryWarmup();
+  // the metrics read from this instance, which are unregistered when it is closed
+  private final Map<String, Supplier<? extends Number>> metricCallbacks =
+      new HashMap<String, Supplier<? extends Number>>();
 
   public GitHubProxyService() {
     setFieldValues();
     cp = new UsernamePasswordCredentialsProvider(gitHubUser, gitHubPassword);
     GitHelper.cp = cp;
+    GitHelper.configureRepositoryRoot(repositoryRoot);
+    GitHelper.configureRepositoryPool(repositoryPoolMaxOpen, repositoryPoolIdleTimeout * 1000L);
+    GitHelper.configureDiskQuota(diskQuota * 1024L * 1024L, diskQuotaCheckInterval * 1000L);
+    GitHelper.configureMaintenance(gcLooseObjectThreshold, gcPackFileThreshold,
+        gcCheckInterval * 1000L);
+    GitHelper.configureRemoteRepositoryCache(remoteRepositoryCacheTtl * 1000L,
+        remoteRepositoryCacheNegativeTtl * 1000L);
+    GitHelper.configureCloning(cloneTimeout, getCloneMode());
+    if (backgroundFetchThreads > 0) {
+      GitHelper.startBackgroundFetching(backgroundFetchThreads, backgroundFetchMinInterval * 1000L,
+          backgroundFetchMaxInterval * 1000L, backgroundFetchIdleTimeout * 1000L);
+    } else {
+      // a previous instance may have started it
+      GitHelper.stopBackgroundFetching();
+    }
+    traceModelCache = new TraceModelCache(traceModelCacheSize);
+    // access ordered, so that the listing of the least recently listed tree is evicted first
+    treeListings = new LinkedHashMap<String, TreeListing>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, TreeListing> eldest) {
+        return size() > treeListingCacheSize;
+      }
+    };
+    modelCheck = new ModelCheck(
+        (guidances, tracedFiles) -> this.invokeCheckModel(guidances, tracedFiles),
+        modelCheckCacheSize, modelCheckTimeout * 1000L, modelCheckFailureThreshold,
+        modelCheckOpenDuration * 1000L);
+    pushScheduler = new PushScheduler(repositoryName -> mergeAndPush(repositoryName), pushThreads,
+        pushMaxAttempts, pushRetryDelay * 1000L);
+
+    metrics.describeHistogram(REQUEST_DURATION, "Duration of requests in seconds by method");
+    metrics.describeCounter(REQUESTS, "Number of requests by method and status code");
+    registerCounter("githubproxy_trace_model_cache_hits_total",
+        "Number of trace models and file traces served from the cache", traceModelCache::getHits);
+    registerCounter("githubproxy_trace_model_cache_misses_total",
+        "Number of trace models and file traces parsed", traceModelCache::getMisses);
+    registerGauge("githubproxy_trace_model_cache_entries",
+        "Number of parsed trace models and file traces in the cache", traceModelCache::size);
+    registerCounter("githubproxy_model_check_cache_hits_total",
+        "Number of model violation checks answered from the cache", modelCheck::getHits);
+    registerCounter("githubproxy_model_check_cache_misses_total",
+        "Number of model violation checks not found in the cache", modelCheck::getMisses);
+    registerGauge("githubproxy_model_check_circuit_open",
+        "Whether the model violation check is currently not called, 1 if so",
+        () -> modelCheck.isOpen() ? 1 : 0);
+
+    startWarmup();
+  }
+
+  /**
+   * Stop the background pushes, the warmup and the background work on the local repositories when
+   * the service is stopped. Pushes that have not been started yet are discarded, their commits are
+   * pushed with the next push of the repository. The metrics of this instance are unregistered,
+   * so that the closed instance is not kept referenced by the shared metrics registry.
+   */
+
+  @Override
+  public void close() {
+    pushScheduler.shutdown();
+    warmup.shutdown();
+    GitHelper.stopBackgroundWork();
+    for (Map.Entry<String, Supplier<? extends Number>> callback : metricCallbacks.entrySet()) {
+      metrics.unregister(callback.getKey(), callback.getValue());
+    }
+    super.close();
+  }
+
+  private void registerCounter(String name, String help, Supplier<? extends Number> value) {
+    metrics.registerCounter(name, help, value);
+    metricCallbacks.put(name, value);
+  }
+
+  private void registerGauge(String name, String help, Supplier<? extends Number> value) {
+    metrics.registerGauge(name, help, value);
+    metricCallbacks.put(name, value);
+  }
+
+  /**
+   * Start warming up the configured and the already cloned repositories in the background
+   */
+
+  private void startWarmup() {
+    Set<String> repositoryNames = new LinkedHashSet<String>();
+    if (warmupRepositories != null) {
+      for (String repositoryName : warmupRepositories.split(",")) {
+        if (!repositoryName.trim().isEmpty()) {
+          repositoryNames.add(repositoryName.trim());
+        }
+      }
+    }
+    if (warmupLocalRepositories) {
+      repositoryNames.addAll(GitHelper.getLocalRepositoryNames());
+    }
+    warmup.start(repositoryNames, repositoryName -> warmUp(repositoryName), warmupThreads);
+  }
+
+  /**
+   * Warm up a repository: clone it if necessary, keep it open in the repository pool and load its
+   * trace model and file traces into the trace model cache
+   * 
+   * @param repositoryName The name of the repository
+   * @throws Exception Thrown if the repository could not be cloned or read
+   */
+
+  private void warmUp(String repositoryName) throws Exception {
+    try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization)) {
+      Repository repository = git.getRepository();
+      RevTree tree = getDevelopmentTree(repository);
+      TraceModel traceModel = this.getTraceModel(repositoryName, repository, tree);
+
+      List<String> traceFileNames = new ArrayList<String>();
+      for (String tracedFile : traceModel.getTracedFiles()) {
+        traceFileNames.add(getTraceFileName(tracedFile));
+      }
+      for (ObjectId traceFileId : GitHelper.getBlobIds(repository, tree, traceFileNames)
+          .values()) {
+        this.traceModelCache.get(repositoryName, repository, traceFileId);
+      }
+      this.getSegmentIndex(repositoryName, repository, tree);
+    }
+  }
+
+  private GitHelper.CloneMode getCloneMode() {
+    try {
+      return GitHelper.CloneMode.valueOf(cloneMode.trim().toUpperCase().replace('-', '_'));
+    } catch (IllegalArgumentException | NullPointerException e) {
+      logger.warning("Unknown clone mode " + cloneMode + ", cloning all branches");
+      return GitHelper.CloneMode.FULL;
+    }
   }
 
   private static String getTraceFileName(String fileName) {
     return "traces/" + fileName + ".traces";
   }
 
+  /**
+   * Handle a request while measuring its duration and counting it by its status code
+   * 
+   * @param methodName The name of the method handling the request
+   * @param method The handling of the request
+   * @return The response of the request
+   */
+
+  @SuppressWarnings("try")
+  private static HttpResponse timed(String methodName, Supplier<HttpResponse> method) {
+    try (MetricsRegistry.Timer timer =
+        metrics.startTimer(REQUEST_DURATION, "method", methodName)) {
+      HttpResponse response = method.get();
+      metrics.increment(REQUESTS, "method", methodName, "status",
+          Integer.toString(response.getStatus()));
+      return response;
+    }
+  }
+
+  /**
+   * Create the response for a conditional request whose entity tag still matches
+   *
+   * @param etag The entity tag of the unchanged response
+   * @return A response without content telling the client to use its copy
+   */
+
+  private static HttpResponse notModified(String etag) {
+    HttpResponse r = new HttpResponse("", HttpURLConnection.HTTP_NOT_MODIFIED);
+    r.setHeader("ETag", etag);
+    return r;
+  }
+
+  /**
+   * Get the tree of the development branch directly from the object database, so that reading
+   * endpoints neither need a checkout nor have to wait for writers of the repository.
+   * 
+   * @param repository The repository
+   * @return The tree of the last commit of the development branch
+   * @throws IOException Thrown if the branch could not be resolved
+   */
+
+  private static RevTree getDevelopmentTree(Repository repository) throws IOException {
+    return GitHelper.getBranchTree(repository, "development");
+  }
+
   /**
    * Get the traces for a file
    * 
+   * @param repositoryName The name of the repository of the file
    * @param git The git object of the repository of the file
    * @param fullFileName The file name whose traces should be returned. Must be the full file name,
    *        i.e. with full file path
@@ -100,117 +347,214 @@ public class GitHubProxyService extends RESTService {
    * @throws Exception Thrown if something went wrong
    */
 
-  @SuppressWarnings("unchecked")
-  private JSONObject getFileTraces(Git git, String fullFileName) throws Exception {
-    JSONObject traceModel = this.getTraceModel(git);
-    JSONArray tracedFiles = (JSONArray) traceModel.get("tracedFiles");
-    JSONObject fileTraces = null;
+  private JSONObject getFileTraces(String repositoryName, Git git, String fullFileName)
+      throws Exception {
+    Repository repository = git.getRepository();
+    return this.getFileTraces(repositoryName, repository, getDevelopmentTree(repository),
+        fullFileName);
+  }
 
-    if (tracedFiles.contains(fullFileName)) {
+  /**
+   * Get the traces for a file from a given tree of its repository
+   * 
+   * @param repositoryName The name of the repository of the file
+   * @param repository The repository of the file
+   * @param tree The tree to read the traces from
+   * @param fullFileName The file name whose traces should be returned. Must be the full file name,
+   *        i.e. with full file path
+   * @return A JSONObject of the file traces or null if the file does not have any traces
+   * @throws Exception Thrown if something went wrong
+   */
 
-      try {
-        String content =
-            GitHelper.getFileContent(git.getRepository(), getTraceFileName(fullFileName));
-        JSONParser parser = new JSONParser();
-        fileTraces = (JSONObject) parser.parse(content);
-        fileTraces.put("generationId", traceModel.get("id"));
-      } catch (FileNotFoundException e) {
-        logger.printStackTrace(e);
-      }
+  private JSONObject getFileTraces(String repositoryName, Repository repository, RevTree tree,
+      String fullFileName) throws Exception {
+    TraceModel traceModel = this.getTraceModel(repositoryName, repository, tree);
+    JSONObject fileTraces = null;
+
+    if (traceModel.isTraced(fullFileName)) {
+      ObjectId traceFileId =
+          GitHelper.getBlobId(repository, tree, getTraceFileName(fullFileName));
+      fileTraces =
+          this.getFileTraces(repositoryName, repository, traceModel, fullFileName, traceFileId);
     }
 
     return fileTraces;
 
   }
 
+  /**
+   * Get the guidances of a component used by the model violation check. The parsed guidances are
+   * shared with the trace model cache and must not be modified.
+   * 
+   * @param repositoryName The name of the repository of the component
+   * @param repository The repository of the component
+   * @param guidancesId The blob id of traces/guidances.json, null if there is none
+   * @return A JSONObject of the guidances, without guidances if they could not be read
+   */
+
   @SuppressWarnings("unchecked")
-  private static JSONObject getGuidances(Git git) {
+  private JSONObject getGuidances(String repositoryName, Repository repository,
+      ObjectId guidancesId) {
 
     JSONObject guidances = new JSONObject();
     // add empty json array
     guidances.put("guidances", new JSONArray());
 
-    JSONParser parser = new JSONParser();
-    String content = "traces/guidances.json";
-    if (content.length() > 0) {
+    if (guidancesId != null) {
       try {
-        guidances =
-            (JSONObject) parser.parse(GitHelper.getFileContent(git.getRepository(), content));
+        guidances = this.traceModelCache.get(repositoryName, repository, guidancesId);
       } catch (Exception e) {
         logger.printStackTrace(e);
       }
+    } else {
+      logger.warning("traces/guidances.json not found");
     }
 
     return guidances;
   }
 
   /**
-   * Get the global trace model of a component
+   * Get the global trace model of a component from a given tree of its repository. The trace model
+   * of the last requested blob is kept per repository, so that the lookup structures are only built
+   * when the trace model changed.
    * 
-   * @param git The git object of the repository
-   * @return A JSONObject of the trace model.
+   * @param repositoryName The name of the repository of the component
+   * @param repository The repository of the component
+   * @param tree The tree to read the trace model from
+   * @return The trace model.
    * @throws Exception Thrown if something went wrong.
    */
 
-  @SuppressWarnings("unchecked")
-  private JSONObject getTraceModel(Git git) throws Exception {
-    JSONObject result = new JSONObject();
-    JSONArray tracedFiles = new JSONArray();
-    result.put("tracedFiles", tracedFiles);
-    try {
-      String jsonCode = GitHelper.getFileContent(git.getRepository(), "traces/tracedFiles.json");
-      JSONParser parser = new JSONParser();
-      result = (JSONObject) parser.parse(jsonCode);
-    } catch (FileNotFoundException e) {
+  private TraceModel getTraceModel(String repositoryName, Repository repository, RevTree tree)
+      throws Exception {
+    ObjectId traceModelId = GitHelper.getBlobId(repository, tree, "traces/tracedFiles.json");
+    if (traceModelId == null) {
       // if a global trace model is not found, the error should be logged
-      logger.printStackTrace(e);
+      logger.warning("traces/tracedFiles.json not found");
+      return TraceModel.empty();
     }
 
-    return result;
+    TraceModel traceModel = this.traceModels.get(repositoryName);
+    if (traceModel == null || !traceModelId.equals(traceModel.getBlobId())) {
+      traceModel = new TraceModel(traceModelId,
+          this.traceModelCache.get(repositoryName, repository, traceModelId));
+      this.traceModels.put(repositoryName, traceModel);
+    }
+    return traceModel;
   }
 
   /**
-   * A private helper method to add the current file or folder of a tree walk to a json array.
+   * Get the index of the segments generated for the model elements of a tree. The index of the
+   * last requested tree is kept per repository and only rebuilt when the tree changed, reusing the
+   * entries of unchanged trace files.
    * 
-   * @param tw The tree walk which current file/folder should be added to the json array
-   * @param files The json array the current file/folder should be added
-   * @param path The path of the current file
+   * @param repositoryName The name of the repository of the component
+   * @param repository The repository of the component
+   * @param tree The tree to index
+   * @return The segment index of the tree
+   * @throws Exception Thrown if the trace model or a trace file could not be read
    */
 
-  @SuppressWarnings("unchecked")
-  private static void addFiletoFileList(TreeWalk tw, JSONArray fileList, JSONArray tracedFiles,
-      String path) {
-    String name = tw.getPathString();
+  private SegmentIndex getSegmentIndex(String repositoryName, Repository repository, RevTree tree)
+      throws Exception {
+    SegmentIndex previous = this.segmentIndexes.get(repositoryName);
+    if (previous != null && previous.getTreeId().equals(tree)) {
+      return previous;
+    }
+
+    TraceModel traceModel = this.getTraceModel(repositoryName, repository, tree);
+    Map<String, String> traceFileNames = new HashMap<String, String>();
+    for (Object modelToFiles : traceModel.getModelsToFiles().values()) {
+      JSONArray fileList = (JSONArray) ((JSONObject) modelToFiles).get("files");
+      if (fileList != null && !fileList.isEmpty()) {
+        String fileName = (String) fileList.get(0);
+        traceFileNames.put(getTraceFileName(fileName), fileName);
+      }
+    }
+    Map<String, ObjectId> traceFileIds = new HashMap<String, ObjectId>();
+    for (Map.Entry<String, ObjectId> traceFile : GitHelper
+        .getBlobIds(repository, tree, traceFileNames.keySet()).entrySet()) {
+      traceFileIds.put(traceFileNames.get(traceFile.getKey()), traceFile.getValue());
+    }
 
-    JSONObject fileObject = new JSONObject();
+    SegmentIndex index = SegmentIndex.build(tree.copy(), traceModel, traceFileIds,
+        traceFileId -> this.traceModelCache.get(repositoryName, repository, traceFileId),
+        previous);
+    this.segmentIndexes.put(repositoryName, index);
+    return index;
+  }
 
-    if (tw.isSubtree()) {
-      if (name.equals("traces")) {
-        return;
+  /**
+   * Get the recursive listing of a tree. The listings of the recently listed trees are kept by
+   * repository and tree id, so that all pages of a listing are cut from the same list, even while
+   * other clients list a newer tree of the repository.
+   * 
+   * @param repositoryName The name of the repository of the component
+   * @param repository The repository of the component
+   * @param tree The tree to list
+   * @return The listing of the tree
+   * @throws Exception Thrown if the trace model or the tree could not be read
+   */
+
+  private TreeListing getTreeListing(String repositoryName, Repository repository, RevTree tree)
+      throws Exception {
+    // trees are immutable, so a listing never has to be invalidated
+    String key = repositoryName + ":" + tree.getName();
+    synchronized (this.treeListings) {
+      TreeListing listing = this.treeListings.get(key);
+      if (listing != null) {
+        return listing;
       }
-      fileObject.put("type", "folder");
-    } else if (!tracedFiles.contains(name)) {
-      return;
-    } else {
-      fileObject.put("type", "file");
     }
-    fileObject.put("path", name);
-    fileList.add(fileObject);
+
+    TraceModel traceModel = this.getTraceModel(repositoryName, repository, tree);
+    TreeListing listing = TreeListing.build(repository, tree,
+        (path, folder) -> isListed(traceModel, path, folder));
+    synchronized (this.treeListings) {
+      this.treeListings.put(key, listing);
+    }
+    return listing;
   }
 
   /**
-   * A private helper method to add the current file or folder of a tree walk to a json array
+   * Check whether a file or folder is shown in listings. Only traced files and the folders
+   * containing them are shown, folders without traced files, like the traces folder, would be
+   * listed empty.
    * 
-   * @param tw The tree walk which current file/folder should be added to the json array
-   * @param files The json array the current file/folder should be added
+   * @param traceModel The trace model of the listed tree
+   * @param path The path of the file or folder
+   * @param folder Whether the path is a folder
+   * @return True if the file or folder is listed
    */
 
-  private static void addFile(TreeWalk tw, JSONArray files, JSONArray tracedFiles) {
-    addFiletoFileList(tw, files, tracedFiles, "");
+  private static boolean isListed(TraceModel traceModel, String path, boolean folder) {
+    if (folder) {
+      return !path.equals("traces") && traceModel.hasTracedFiles(path);
+    }
+    return traceModel.isTraced(path);
   }
 
   /**
-   * Get a list containing all traced files of a given repository
+   * A private helper method to write the current file or folder of a tree walk to a json array.
+   * 
+   * @param tw The tree walk which current file/folder should be written to the json array
+   * @param fileList The writer of the json array the current file/folder should be written to
+   * @param traceModel The trace model deciding whether the file/folder is listed
+   */
+
+  private static void addFiletoFileList(TreeWalk tw, JsonWriter fileList, TraceModel traceModel) {
+    String name = tw.getPathString();
+    if (!isListed(traceModel, name, tw.isSubtree())) {
+      return;
+    }
+    String type = tw.isSubtree() ? "folder" : "file";
+    fileList.beginObject().name("type").value(type).name("path").value(name).endObject();
+  }
+
+
+  /**
+   * Get a list containing all traced files of a given repository. HEAD is resolved once and the
+   * blobs of all traced files and their traces are collected within a single pass over the tree.
    * 
    * @param repositoryName The name of the repository
    * @return A list of all traced files
@@ -220,25 +564,29 @@ public class GitHubProxyService extends RESTService {
   public HashMap<String, JSONObject> getAllTracedFiles(String repositoryName) {
     HashMap<String, JSONObject> files = new HashMap<String, JSONObject>();
 
-    try (Git git = GitHelper.getLocalGit(repositoryName, this.gitHubOrganization, "development");) {
-      JSONArray tracedFiles = (JSONArray) this.getTraceModel(git).get("tracedFiles");
-      logger.fine(gitHubOrganization);
+    try (Git git = GitHelper.getLocalGit(repositoryName, this.gitHubOrganization);) {
+      Repository repository = git.getRepository();
+      RevTree tree = getDevelopmentTree(repository);
+      TraceModel traceModel = this.getTraceModel(repositoryName, repository, tree);
+      Map<String, ObjectId> blobIds = getTracedFileBlobIds(repository, tree, traceModel);
 
-      try (TreeWalk treeWalk = GitHelper.getRepositoryTreeWalk(git.getRepository(), true)) {
-        while (treeWalk.next()) {
-          if (tracedFiles.contains(treeWalk.getPathString())) {
-            JSONObject fileObject = new JSONObject();
-            String content =
-                GitHelper.getFileContent(git.getRepository(), treeWalk.getPathString());
-            JSONObject fileTraces = this.getFileTraces(git, treeWalk.getPathString());
+      for (String fileName : traceModel.getTracedFiles()) {
+        ObjectId fileId = blobIds.get(fileName);
+        if (fileId == null) {
+          continue;
+        }
 
-            fileObject.put("content",
-                Base64.getEncoder().encodeToString(content.getBytes("utf-8")));
-            fileObject.put("fileTraces", fileTraces);
+        JSONObject fileTraces = this.getFileTraces(repositoryName, repository, traceModel,
+            fileName, blobIds.get(getTraceFileName(fileName)));
 
-            files.put(treeWalk.getPathString(), fileObject);
-          }
-        }
+        // the raw bytes are encoded, so that the content is neither decoded nor copied as a whole
+        StringBuilder content = new StringBuilder();
+        GitHelper.appendBase64Content(repository, fileId, content);
+        JSONObject fileObject = new JSONObject();
+        fileObject.put("content", content.toString());
+        fileObject.put("fileTraces", fileTraces);
+
+        files.put(fileName, fileObject);
       }
 
     } catch (Exception e) {
@@ -248,6 +596,117 @@ public class GitHubProxyService extends RESTService {
     return files;
   }
 
+  /**
+   * Export all traced files of a repository with their contents encoded in base64 and their file
+   * traces, like {@link #getAllTracedFiles(String)} does for other services. The response is
+   * written while the blobs are read, without building json objects for the files.
+   * 
+   * @param repositoryName The name of the repository
+   * @param ifNoneMatch The entity tag of a previously exported version, if any
+   * @return HttpResponse containing the traced files by their file names
+   */
+
+  @GET
+  @Path("{repositoryName}/tracedFiles/")
+  @Produces(MediaType.APPLICATION_JSON)
+  @ApiOperation(
+      value = "Returns all traced files of the given repository encoded in Base64 with their traces.",
+      notes = "Returns all traced files of the given repository.")
+  @ApiResponses(value = {@ApiResponse(code = HttpURLConnection.HTTP_OK, message = "OK"),
+      @ApiResponse(code = HttpURLConnection.HTTP_INTERNAL_ERROR, message = "Internal server error"),
+      @ApiResponse(code = HttpURLConnection.HTTP_NOT_FOUND, message = "404, repository not found"),
+      @ApiResponse(code = HttpURLConnection.HTTP_NOT_MODIFIED,
+          message = "Not modified since the version of the given ETag")})
+  public HttpResponse exportTracedFiles(@PathParam("repositoryName") String repositoryName,
+      @HeaderParam("If-None-Match") String ifNoneMatch) {
+    return timed("exportTracedFiles", () -> {
+      try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization)) {
+        Repository repository = git.getRepository();
+        RevTree tree = getDevelopmentTree(repository);
+        String etag = ETags.of(tree);
+        if (ETags.matches(ifNoneMatch, etag)) {
+          return notModified(etag);
+        }
+
+        TraceModel traceModel = this.getTraceModel(repositoryName, repository, tree);
+        Map<String, ObjectId> blobIds = getTracedFileBlobIds(repository, tree, traceModel);
+        JsonWriter response = new JsonWriter().beginObject().name("files").beginObject();
+        for (String fileName : traceModel.getTracedFiles()) {
+          ObjectId fileId = blobIds.get(fileName);
+          if (fileId == null) {
+            continue;
+          }
+          JSONObject fileTraces = this.getFileTraces(repositoryName, repository, traceModel,
+              fileName, blobIds.get(getTraceFileName(fileName)));
+
+          response.name(fileName).beginObject().name("content");
+          GitHelper.appendBase64Content(repository, fileId, response.beginString());
+          response.endString().name("fileTraces")
+              .rawValue(fileTraces != null ? fileTraces.toJSONString() : "null").endObject();
+        }
+        response.endObject().endObject();
+
+        HttpResponse r = new HttpResponse(response.toString(), HttpURLConnection.HTTP_OK);
+        r.setHeader("ETag", etag);
+        return r;
+      } catch (FileNotFoundException e) {
+        HttpResponse r = new HttpResponse("Not found", HttpURLConnection.HTTP_NOT_FOUND);
+        return r;
+      } catch (Exception e) {
+        logger.printStackTrace(e);
+        HttpResponse r = new HttpResponse("Internal Error", HttpURLConnection.HTTP_INTERNAL_ERROR);
+        return r;
+      }
+    });
+  }
+
+  /**
+   * Get the blob ids of all traced files of a tree and of their trace files, located within a
+   * single pass over the tree
+   * 
+   * @param repository The repository of the files
+   * @param tree The tree containing the files
+   * @param traceModel The trace model of the tree
+   * @return A map from the file paths to their blob ids, without the files not found
+   * @throws IOException Thrown if the tree could not be read
+   */
+
+  private static Map<String, ObjectId> getTracedFileBlobIds(Repository repository, RevTree tree,
+      TraceModel traceModel) throws IOException {
+    List<String> neededFileNames = new ArrayList<String>();
+    for (String tracedFile : traceModel.getTracedFiles()) {
+      neededFileNames.add(tracedFile);
+      neededFileNames.add(getTraceFileName(tracedFile));
+    }
+    return GitHelper.getBlobIds(repository, tree, neededFileNames);
+  }
+
+  /**
+   * Get the traces of a traced file with the generation id of the trace model added
+   * 
+   * @param repositoryName The name of the repository of the file
+   * @param repository The repository of the file
+   * @param traceModel The trace model the generation id is taken from
+   * @param fileName The full file name of the traced file
+   * @param traceFileId The blob id of the trace file, null if it was not found
+   * @return A JSONObject of the file traces or null if the trace file was not found
+   * @throws Exception Thrown if the trace file could not be read
+   */
+
+  @SuppressWarnings("unchecked")
+  private JSONObject getFileTraces(String repositoryName, Repository repository,
+      TraceModel traceModel, String fileName, ObjectId traceFileId) throws Exception {
+    if (traceFileId == null) {
+      logger.warning(getTraceFileName(fileName) + " not found");
+      return null;
+    }
+    // copy the cached traces, as the generation id is added to them
+    JSONObject fileTraces =
+        new JSONObject(this.traceModelCache.get(repositoryName, repository, traceFileId));
+    fileTraces.put("generationId", traceModel.getGenerationId());
+    return fileTraces;
+  }
+
   /**
    * Store the content of the files encoded in based64 to a repository
    * 
@@ -257,33 +716,22 @@ public class GitHubProxyService extends RESTService {
    * @return A status string
    */
 
+  @SuppressWarnings("try")
   public String storeAndCommitFilesRaw(String repositoryName, String commitMessage,
       String[][] files) {
 
-    try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization, "development");) {
+    try (LockHandle lock = GitHelper.lockForWriting(repositoryName);
+        Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization, "development");) {
+      MultiFileCommit commit = new MultiFileCommit();
       for (String[] fileData : files) {
 
         String filePath = fileData[0];
         String content = fileData[1];
 
-        byte[] base64decodedBytes = Base64.getDecoder().decode(content);
-        String decodedString = new String(base64decodedBytes, "utf-8");
-
-        File file = new File(git.getRepository().getDirectory().getParent(), filePath);
-        if (!file.exists()) {
-          File dirs = file.getParentFile();
-          dirs.mkdirs();
-          file.createNewFile();
-        }
-        FileWriter fW = new FileWriter(file, false);
-        fW.write(decodedString);
-        fW.close();
-
-        git.add().addFilepattern(filePath).call();
-
+        commit.addFile(filePath, Base64.getDecoder().decode(content));
       }
 
-      git.commit().setAuthor(gitHubUser, gitHubUserMail).setMessage(commitMessage).call();
+      commit.commit(git, gitHubUser, gitHubUserMail, commitMessage);
 
 
     } catch (Exception e) {
@@ -303,10 +751,12 @@ public class GitHubProxyService extends RESTService {
    * @return String with the status code of the request
    */
 
+  @SuppressWarnings("try")
   public String renameFile(String repositoryName, String newFileName, String oldFileName) {
-    try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization, "development")) {
+    try (LockHandle lock = GitHelper.lockForWriting(repositoryName);
+        Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization, "development")) {
       GitHelper.renameFile(repositoryName, gitHubOrganization, newFileName, oldFileName, cp);
-      JSONObject currentTraceFile = this.getFileTraces(git, oldFileName);
+      JSONObject currentTraceFile = this.getFileTraces(repositoryName, git, oldFileName);
 
       // also rename the trace file if it exists
       if (currentTraceFile != null) {
@@ -332,11 +782,13 @@ public class GitHubProxyService extends RESTService {
    * @return String with the status code of the request
    */
 
+  @SuppressWarnings("try")
   public String deleteFile(String repositoryName, String fileName) {
-    try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization, "development")) {
+    try (LockHandle lock = GitHelper.lockForWriting(repositoryName);
+        Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization, "development")) {
 
       GitHelper.deleteFile(repositoryName, gitHubOrganization, fileName,cp);
-      JSONObject currentTraceFile = this.getFileTraces(git, fileName);
+      JSONObject currentTraceFile = this.getFileTraces(repositoryName, git, fileName);
 
       // also rename the trace file if it exists
       if (currentTraceFile != null) {
@@ -355,11 +807,31 @@ public class GitHubProxyService extends RESTService {
 
   /**
    * Merges the development branch of the given repository with the master/gh-pages branch and
-   * pushes the changes to the remote repository.
+   * pushes the changes to the remote repository. Called by the push scheduler.
+   * 
+   * @param repositoryName The name of the repository to push the local changes to
+   * @throws Exception Thrown if the merge or the push failed
+   */
+
+  @SuppressWarnings("try")
+  private void mergeAndPush(String repositoryName) throws Exception {
+    try (LockHandle lock = GitHelper.lockForWriting(repositoryName)) {
+      // determine which branch to merge in
+      boolean isFrontend = repositoryName.startsWith("frontendComponent-");
+      String masterBranchName = isFrontend ? "gh-pages" : "master";
+
+      GitHelper.mergeIntoMasterBranch(repositoryName, gitHubOrganization, masterBranchName,
+          new UsernamePasswordCredentialsProvider(gitHubUser, gitHubPassword));
+    }
+  }
+
+  /**
+   * Requests to merge the development branch of the given repository with the master/gh-pages
+   * branch and to push the changes to the remote repository. The push is done in the background,
+   * its progress can be requested with the returned push id.
    * 
    * @param repositoryName The name of the repository to push the local changes to
-   * @return HttpResponse containing the status code of the request or the result of the model
-   *         violation if it fails
+   * @return HttpResponse containing the status code of the request and the push id
    */
 
   @SuppressWarnings("unchecked")
@@ -367,28 +839,102 @@ public class GitHubProxyService extends RESTService {
   @Path("{repositoryName}/push/")
   @Produces(MediaType.APPLICATION_JSON)
   @ApiOperation(value = "Merge and push the commits to the remote repository",
-      notes = "Push the commits to the remote repo.")
+      notes = "Schedules a push of the commits to the remote repo.")
   @ApiResponses(
-      value = {@ApiResponse(code = HttpURLConnection.HTTP_OK, message = "OK"), @ApiResponse(
-          code = HttpURLConnection.HTTP_INTERNAL_ERROR, message = "Internal server error")})
+      value = {@ApiResponse(code = HttpURLConnection.HTTP_OK, message = "OK, push scheduled"),
+          @ApiResponse(code = HttpURLConnection.HTTP_INTERNAL_ERROR,
+              message = "Internal server error")})
   public HttpResponse pushToRemote(@PathParam("repositoryName") String repositoryName) {
-    try {
+    return timed("pushToRemote", () -> {
+      try {
+        String pushId = this.pushScheduler.submit(repositoryName);
+        JSONObject result = new JSONObject();
+        result.put("status", "ok");
+        result.put("pushId", pushId);
+        HttpResponse r = new HttpResponse(result.toJSONString(), HttpURLConnection.HTTP_OK);
+        return r;
+      } catch (Exception e) {
+        logger.printStackTrace(e);
+        HttpResponse r = new HttpResponse("Internal Error", HttpURLConnection.HTTP_INTERNAL_ERROR);
+        return r;
+      }
+    });
+  }
 
-      // determine which branch to merge in
-      boolean isFrontend = repositoryName.startsWith("frontendComponent-");
-      String masterBranchName = isFrontend ? "gh-pages" : "master";
+  /**
+   * Returns the status of a push requested with {@link #pushToRemote(String)}.
+   * 
+   * @param repositoryName The name of the repository
+   * @param pushId The push id returned when the push was requested
+   * @return HttpResponse containing the status code of the request and the push status
+   */
+
+  @SuppressWarnings("unchecked")
+  @GET
+  @Path("{repositoryName}/push/{pushId}")
+  @Produces(MediaType.APPLICATION_JSON)
+  @ApiOperation(value = "Returns the status of a push to the remote repository",
+      notes = "Returns the status of a push.")
+  @ApiResponses(value = {@ApiResponse(code = HttpURLConnection.HTTP_OK, message = "OK, push found"),
+      @ApiResponse(code = HttpURLConnection.HTTP_NOT_FOUND, message = "404, push not found")})
+  public HttpResponse getPushStatus(@PathParam("repositoryName") String repositoryName,
+      @PathParam("pushId") String pushId) {
+    return timed("getPushStatus", () -> {
+      PushScheduler.Push push = this.pushScheduler.getPush(pushId);
+      if (push == null || !push.getRepositoryName().equals(repositoryName)) {
+        HttpResponse r = new HttpResponse("Not found", HttpURLConnection.HTTP_NOT_FOUND);
+        return r;
+      }
 
-      GitHelper.mergeIntoMasterBranch(repositoryName, gitHubOrganization, masterBranchName,
-          new UsernamePasswordCredentialsProvider(gitHubUser, gitHubPassword));
       JSONObject result = new JSONObject();
-      result.put("status", "ok");
+      result.put("pushId", pushId);
+      result.put("status", push.getState().name().toLowerCase());
+      result.put("attempts", push.getAttempts(pushId));
+      if (push.getError() != null) {
+        result.put("error", push.getError());
+      }
       HttpResponse r = new HttpResponse(result.toJSONString(), HttpURLConnection.HTTP_OK);
       return r;
-    } catch (Exception e) {
-      logger.printStackTrace(e);
-      HttpResponse r = new HttpResponse("Internal Error", HttpURLConnection.HTTP_INTERNAL_ERROR);
-      return r;
-    }
+    });
+  }
+
+  /**
+   * Call the model violation check of the code generation service for the given traced files.
+   * Files already checked against the same guidances are not checked again.
+   * 
+   * @param repositoryName The name of the repository of the files
+   * @param repository The repository of the files
+   * @param tree The tree to read the guidances from
+   * @param tracedFiles The traced files to check, with their content encoded in base64 and their
+   *        file traces
+   * @return A JSONArray of the feedback items, empty if no violation was found
+   * @throws ModelCheck.UnavailableException Thrown if the check is not called because it failed
+   *         repeatedly before
+   * @throws Exception Thrown if the code generation service could not be invoked
+   */
+
+  private JSONArray checkModel(String repositoryName, Repository repository, RevTree tree,
+      HashMap<String, JSONObject> tracedFiles) throws Exception {
+    ObjectId guidancesId = GitHelper.getBlobId(repository, tree, "traces/guidances.json");
+    return this.modelCheck.check(guidancesId,
+        () -> this.getGuidances(repositoryName, repository, guidancesId), tracedFiles);
+  }
+
+  /**
+   * Invoke the model violation check of the code generation service
+   * 
+   * @param guidances The guidances of the component
+   * @param tracedFiles The traced files to check
+   * @return A JSONArray of the feedback items
+   * @throws Exception Thrown if the code generation service could not be invoked
+   */
+
+  private JSONArray invokeCheckModel(JSONObject guidances, HashMap<String, JSONObject> tracedFiles)
+      throws Exception {
+    Serializable[] payload = {guidances, tracedFiles};
+    return (JSONArray) this.invokeServiceMethod(
+        "i5.las2peer.services.codeGenerationService.CodeGenerationService@0.1", "checkModel",
+        payload);
   }
 
   /**
@@ -400,7 +946,7 @@ public class GitHubProxyService extends RESTService {
    * @return HttpResponse with the status code of the request
    */
 
-  @SuppressWarnings("unchecked")
+  @SuppressWarnings({"unchecked", "try"})
   @PUT
   @Path("{repositoryName}/file/")
   @Consumes(MediaType.APPLICATION_JSON)
@@ -410,88 +956,242 @@ public class GitHubProxyService extends RESTService {
       notes = "Stores the content for the given file in the local repository and commits the changes.")
   @ApiResponses(value = {@ApiResponse(code = HttpURLConnection.HTTP_OK, message = "OK, file found"),
       @ApiResponse(code = HttpURLConnection.HTTP_INTERNAL_ERROR, message = "Internal server error"),
-      @ApiResponse(code = HttpURLConnection.HTTP_NOT_FOUND, message = "404, file not found")})
-  public synchronized HttpResponse storeAndCommitFle(
+      @ApiResponse(code = HttpURLConnection.HTTP_NOT_FOUND, message = "404, file not found"),
+      @ApiResponse(code = HttpURLConnection.HTTP_UNAVAILABLE,
+          message = "Model violation check unavailable")})
+  public HttpResponse storeAndCommitFle(
       @PathParam("repositoryName") String repositoryName, @ContentParam String content) {
-    try {
-      JSONObject result = new JSONObject();
+    return timed("storeAndCommitFle", () -> {
+      try {
+        JSONObject result = new JSONObject();
+
+        JSONParser parser = new JSONParser();
+        JSONObject contentObject = (JSONObject) parser.parse(content);
+        String filePath = contentObject.get("filename").toString();
+        String fileContent = contentObject.get("content").toString();
+        String commitMessage = contentObject.get("commitMessage").toString();
+        JSONObject traces = (JSONObject) contentObject.get("traces");
+
+        byte[] base64decodedBytes = Base64.getDecoder().decode(fileContent);
+
+        try (LockHandle lock = GitHelper.lockForWriting(repositoryName);
+            Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization, "development");) {
+
+          Repository repository = git.getRepository();
+          RevTree tree = getDevelopmentTree(repository);
+          if (GitHelper.getBlobId(repository, tree, filePath) != null) {
+            // call model violation check of the code generation service if enabled
+            if (this.useModelCheck) {
+              JSONObject tracedFileObject = new JSONObject();
+              tracedFileObject.put("content", fileContent);
+              tracedFileObject.put("fileTraces", traces);
+
+              HashMap<String, JSONObject> tracedFile = new HashMap<String, JSONObject>();
+              tracedFile.put(filePath, tracedFileObject);
+
+              JSONArray feedback =
+                  this.checkModel(repositoryName, repository, tree, tracedFile);
+              if (feedback.size() > 0) {
+
+                result.put("status", "Model violation check fails");
+                result.put("feedbackItems", feedback);
+                HttpResponse r = new HttpResponse(result.toJSONString(), HttpURLConnection.HTTP_OK);
+                return r;
+              }
+            }
+            // check generation id to avoid conflicts
+            JSONObject currentTraceFile =
+                this.getFileTraces(repositoryName, repository, tree, filePath);
+            if (currentTraceFile != null) {
+              String generationId = (String) currentTraceFile.get("generationId");
+              String payloadGenerationId = (String) traces.get("generationId");
+              if (!generationId.equals(payloadGenerationId)) {
+                HttpResponse r = new HttpResponse("Commit rejected. Wrong generation id",
+                    HttpURLConnection.HTTP_CONFLICT);
+                return r;
+              }
+            }
+
+            new MultiFileCommit().addFile(filePath, base64decodedBytes)
+                .addFile(getTraceFileName(filePath), traces.toJSONString().getBytes("utf-8"))
+                .commit(git, gitHubUser, gitHubUserMail, commitMessage);
 
-      JSONParser parser = new JSONParser();
-      JSONObject contentObject = (JSONObject) parser.parse(content);
-      String filePath = contentObject.get("filename").toString();
-      String fileContent = contentObject.get("content").toString();
-      String commitMessage = contentObject.get("commitMessage").toString();
-      JSONObject traces = (JSONObject) contentObject.get("traces");
+            result.put("status", "OK, file stored and commited");
+            HttpResponse r = new HttpResponse(result.toJSONString(), HttpURLConnection.HTTP_OK);
+            return r;
+          } else {
+            HttpResponse r = new HttpResponse("404", HttpURLConnection.HTTP_NOT_FOUND);
+            return r;
+          }
+
+        }
 
-      byte[] base64decodedBytes = Base64.getDecoder().decode(fileContent);
-      String decodedString = new String(base64decodedBytes, "utf-8");
+      } catch (ModelCheck.UnavailableException e) {
+        HttpResponse r = new HttpResponse(e.getMessage(), HttpURLConnection.HTTP_UNAVAILABLE);
+        return r;
+      } catch (Exception e) {
+        logger.printStackTrace(e);
+        HttpResponse r = new HttpResponse("Internal Error", HttpURLConnection.HTTP_INTERNAL_ERROR);
+        return r;
+      }
+    });
+  }
 
-      try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization, "development");) {
+  /**
+   * Store the contents and traces of several files in a repository and commit them with a single
+   * commit to the local repository. The generation ids of all files are validated before anything
+   * is written.
+   * 
+   * @param repositoryName The name of the repository
+   * @param content A json string containing the commit message and a list of files, each with its
+   *        file name, its content encoded in base64 and its file traces
+   * @return HttpResponse with the status code of the request
+   */
 
-        File file = new File(git.getRepository().getDirectory().getParent(), filePath);
-        if (file.exists()) {
+  @SuppressWarnings({"unchecked", "try"})
+  @PUT
+  @Path("{repositoryName}/files/")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  @ApiOperation(
+      value = "Stores the contents for the given files in the local repository and commits the changes at once.",
+      notes = "Stores the contents for the given files in the local repository and commits the changes.")
+  @ApiResponses(value = {@ApiResponse(code = HttpURLConnection.HTTP_OK, message = "OK, files found"),
+      @ApiResponse(code = HttpURLConnection.HTTP_INTERNAL_ERROR, message = "Internal server error"),
+      @ApiResponse(code = HttpURLConnection.HTTP_NOT_FOUND, message = "404, file not found"),
+      @ApiResponse(code = HttpURLConnection.HTTP_CONFLICT, message = "Wrong generation id"),
+      @ApiResponse(code = HttpURLConnection.HTTP_BAD_REQUEST, message = "Malformed request"),
+      @ApiResponse(code = HttpURLConnection.HTTP_UNAVAILABLE,
+          message = "Model violation check unavailable")})
+  public HttpResponse storeAndCommitFiles(@PathParam("repositoryName") String repositoryName,
+      @ContentParam String content) {
+    return timed("storeAndCommitFiles", () -> {
+      try {
+        JSONObject result = new JSONObject();
+
+        JSONParser parser = new JSONParser();
+        Object body;
+        try {
+          body = parser.parse(content != null ? content : "");
+        } catch (ParseException e) {
+          return new HttpResponse("Malformed json: " + e, HttpURLConnection.HTTP_BAD_REQUEST);
+        }
+        String malformed = validateFiles(body);
+        if (malformed != null) {
+          return new HttpResponse(malformed, HttpURLConnection.HTTP_BAD_REQUEST);
+        }
+        JSONObject contentObject = (JSONObject) body;
+        String commitMessage = contentObject.get("commitMessage").toString();
+        JSONArray files = (JSONArray) contentObject.get("files");
+
+        try (LockHandle lock = GitHelper.lockForWriting(repositoryName);
+            Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization, "development");) {
+          Repository repository = git.getRepository();
+          RevTree tree = getDevelopmentTree(repository);
+          MultiFileCommit commit = new MultiFileCommit();
+          HashMap<String, JSONObject> tracedFiles = new HashMap<String, JSONObject>();
+
+          for (Object fileObject : files) {
+            JSONObject file = (JSONObject) fileObject;
+            String filePath = file.get("filename").toString();
+            String fileContent = file.get("content").toString();
+            JSONObject traces = (JSONObject) file.get("traces");
+
+            if (GitHelper.getBlobId(repository, tree, filePath) == null) {
+              HttpResponse r = new HttpResponse(filePath + " not found",
+                  HttpURLConnection.HTTP_NOT_FOUND);
+              return r;
+            }
+
+            // check generation id to avoid conflicts
+            JSONObject currentTraceFile =
+                this.getFileTraces(repositoryName, repository, tree, filePath);
+            if (currentTraceFile != null) {
+              String generationId = (String) currentTraceFile.get("generationId");
+              String payloadGenerationId = (String) traces.get("generationId");
+              if (!generationId.equals(payloadGenerationId)) {
+                HttpResponse r = new HttpResponse("Commit rejected. Wrong generation id for "
+                    + filePath, HttpURLConnection.HTTP_CONFLICT);
+                return r;
+              }
+            }
 
-          FileWriter fW = new FileWriter(file, false);
-          fW.write(decodedString);
-          fW.close();
-          // call model violation check of the code generation service if enabled
-          if (this.useModelCheck) {
             JSONObject tracedFileObject = new JSONObject();
             tracedFileObject.put("content", fileContent);
             tracedFileObject.put("fileTraces", traces);
+            tracedFiles.put(filePath, tracedFileObject);
 
-            HashMap<String, JSONObject> tracedFile = new HashMap<String, JSONObject>();
-            tracedFile.put(filePath, tracedFileObject);
+            try {
+              commit.addFile(filePath, Base64.getDecoder().decode(fileContent));
+            } catch (IllegalArgumentException e) {
+              return new HttpResponse("The content of " + filePath + " is not encoded in base64",
+                  HttpURLConnection.HTTP_BAD_REQUEST);
+            }
+            commit.addFile(getTraceFileName(filePath), traces.toJSONString().getBytes("utf-8"));
+          }
 
-            Serializable[] payload = {getGuidances(git), tracedFile};
-            JSONArray feedback = (JSONArray) this.invokeServiceMethod(
-                "i5.las2peer.services.codeGenerationService.CodeGenerationService@0.1",
-                "checkModel", payload);
+          // call model violation check of the code generation service once for all files
+          if (this.useModelCheck && !tracedFiles.isEmpty()) {
+            JSONArray feedback = this.checkModel(repositoryName, repository, tree, tracedFiles);
             if (feedback.size() > 0) {
-
               result.put("status", "Model violation check fails");
               result.put("feedbackItems", feedback);
               HttpResponse r = new HttpResponse(result.toJSONString(), HttpURLConnection.HTTP_OK);
               return r;
             }
           }
-          // check generation id to avoid conflicts
-          JSONObject currentTraceFile = this.getFileTraces(git, filePath);
-          if (currentTraceFile != null) {
-            String generationId = (String) currentTraceFile.get("generationId");
-            String payloadGenerationId = (String) traces.get("generationId");
-            if (!generationId.equals(payloadGenerationId)) {
-              HttpResponse r = new HttpResponse("Commit rejected. Wrong generation id",
-                  HttpURLConnection.HTTP_CONFLICT);
-              return r;
-            }
-          }
 
-          File traceFile =
-              new File(git.getRepository().getDirectory().getParent(), getTraceFileName(filePath));
-
-          fW = new FileWriter(traceFile, false);
-          fW.write(traces.toJSONString());
-          fW.close();
-
-          git.add().addFilepattern(filePath).addFilepattern(getTraceFileName(filePath)).call();
-          git.commit().setAuthor(gitHubUser, gitHubUserMail).setMessage(commitMessage).call();
+          if (!commit.isEmpty()) {
+            commit.commit(git, gitHubUser, gitHubUserMail, commitMessage);
+          }
 
-          result.put("status", "OK, file stored and commited");
+          result.put("status", "OK, files stored and commited");
           HttpResponse r = new HttpResponse(result.toJSONString(), HttpURLConnection.HTTP_OK);
           return r;
-        } else {
-          HttpResponse r = new HttpResponse("404", HttpURLConnection.HTTP_NOT_FOUND);
-          return r;
         }
 
+      } catch (ModelCheck.UnavailableException e) {
+        HttpResponse r = new HttpResponse(e.getMessage(), HttpURLConnection.HTTP_UNAVAILABLE);
+        return r;
+      } catch (Exception e) {
+        logger.printStackTrace(e);
+        HttpResponse r = new HttpResponse("Internal Error", HttpURLConnection.HTTP_INTERNAL_ERROR);
+        return r;
       }
+    });
+  }
 
-    } catch (Exception e) {
-      logger.printStackTrace(e);
-      HttpResponse r = new HttpResponse("Internal Error", HttpURLConnection.HTTP_INTERNAL_ERROR);
-      return r;
+  /**
+   * Check the body of a request storing several files, before anything is read or written
+   * 
+   * @param body The parsed body of the request
+   * @return A description of the first problem found, null if the body is well-formed
+   */
+
+  private static String validateFiles(Object body) {
+    if (!(body instanceof JSONObject)) {
+      return "The body must be a json object";
+    }
+    JSONObject contentObject = (JSONObject) body;
+    if (contentObject.get("commitMessage") == null) {
+      return "Missing commitMessage";
+    }
+    if (!(contentObject.get("files") instanceof JSONArray)) {
+      return "Missing files array";
     }
+    for (Object fileObject : (JSONArray) contentObject.get("files")) {
+      if (!(fileObject instanceof JSONObject)) {
+        return "Every file must be a json object";
+      }
+      JSONObject file = (JSONObject) fileObject;
+      if (file.get("filename") == null || file.get("content") == null) {
+        return "Every file needs a filename and a content";
+      }
+      if (!(file.get("traces") instanceof JSONObject)) {
+        return "Missing traces of " + file.get("filename");
+      }
+    }
+    return null;
   }
 
   /**
@@ -515,44 +1215,36 @@ public class GitHubProxyService extends RESTService {
       @ApiResponse(code = HttpURLConnection.HTTP_NOT_FOUND, message = "404, segment not found")})
   public HttpResponse getSegmentOfModelId(@PathParam("repositoryName") String repositoryName,
       @PathParam("modelId") String modelId) {
+    return timed("getSegmentOfModelId", () -> {
 
-    try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization, "development");) {
+      try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization);) {
 
-      JSONObject resultObject = new JSONObject();
+        JSONObject resultObject = new JSONObject();
 
-      JSONObject traceModel = this.getTraceModel(git);
-      JSONObject modelsToFiles = (JSONObject) traceModel.get("modelsToFile");
-
-      if (modelsToFiles != null) {
-        if (modelsToFiles.containsKey(modelId)) {
-          JSONArray fileList = (JSONArray) ((JSONObject) modelsToFiles.get(modelId)).get("files");
-          String fileName = (String) fileList.get(0);
-          JSONObject fileTraceModel = this.getFileTraces(git, fileName);
-          JSONObject fileTraces = (JSONObject) fileTraceModel.get("traces");
-          JSONArray segments = (JSONArray) ((JSONObject) fileTraces.get(modelId)).get("segments");
-          String segmentId = (String) segments.get(0);
-
-          resultObject.put("fileName", fileName);
-          resultObject.put("segmentId", segmentId);
+        Repository repository = git.getRepository();
+        SegmentIndex.Segments segments =
+            this.getSegmentIndex(repositoryName, repository, getDevelopmentTree(repository))
+                .get(modelId);
 
+        if (segments != null) {
+          resultObject.put("fileName", segments.getFileName());
+          resultObject.put("segmentId", segments.getSegmentIds().get(0));
         } else {
           throw new FileNotFoundException();
         }
-      } else {
-        throw new Exception("Error: modelsToFiles mapping not found!");
-      }
 
-      HttpResponse r = new HttpResponse(resultObject.toJSONString(), HttpURLConnection.HTTP_OK);
-      return r;
-    } catch (FileNotFoundException fileNotFoundException) {
-      HttpResponse r = new HttpResponse("Not found", HttpURLConnection.HTTP_NOT_FOUND);
-      return r;
-    } catch (Exception e) {
-      logger.printStackTrace(e);
-      HttpResponse r = new HttpResponse("Internal Error", HttpURLConnection.HTTP_INTERNAL_ERROR);
-      return r;
-    }
+        HttpResponse r = new HttpResponse(resultObject.toJSONString(), HttpURLConnection.HTTP_OK);
+        return r;
+      } catch (FileNotFoundException fileNotFoundException) {
+        HttpResponse r = new HttpResponse("Not found", HttpURLConnection.HTTP_NOT_FOUND);
+        return r;
+      } catch (Exception e) {
+        logger.printStackTrace(e);
+        HttpResponse r = new HttpResponse("Internal Error", HttpURLConnection.HTTP_INTERNAL_ERROR);
+        return r;
+      }
 
+    });
   }
 
   /**
@@ -563,7 +1255,6 @@ public class GitHubProxyService extends RESTService {
    *         files for the live preview widget encoded in base64 if everything was fine.
    */
 
-  @SuppressWarnings("unchecked")
   @GET
   @Path("{repositoryName}/livePreviewFiles/")
   @Produces(MediaType.APPLICATION_JSON)
@@ -572,53 +1263,64 @@ public class GitHubProxyService extends RESTService {
       notes = "Returns all needed files for the live preview widget.")
   @ApiResponses(value = {@ApiResponse(code = HttpURLConnection.HTTP_OK, message = "OK, file found"),
       @ApiResponse(code = HttpURLConnection.HTTP_INTERNAL_ERROR, message = "Internal server error"),
-      @ApiResponse(code = HttpURLConnection.HTTP_NOT_FOUND, message = "404, file not found")})
-  public HttpResponse getLivePreviewFiles(@PathParam("repositoryName") String repositoryName) {
-    if (repositoryName.startsWith("frontendComponent")
-        && GitHelper.existsLocalRepository(repositoryName)) {
-
-      try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization)) {
-        if (git.getRepository().getBranch().equals("development")) {
+      @ApiResponse(code = HttpURLConnection.HTTP_NOT_FOUND, message = "404, file not found"),
+      @ApiResponse(code = HttpURLConnection.HTTP_NOT_MODIFIED,
+          message = "Not modified since the version of the given ETag")})
+  public HttpResponse getLivePreviewFiles(@PathParam("repositoryName") String repositoryName,
+      @HeaderParam("If-None-Match") String ifNoneMatch) {
+    return timed("getLivePreviewFiles", () -> {
+      if (repositoryName.startsWith("frontendComponent")
+          && GitHelper.existsLocalRepository(repositoryName)) {
 
-          JSONObject result = new JSONObject();
-          JSONArray fileList = new JSONArray();
+        try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization)) {
 
           String[] neededFileNames = {"widget.xml", "js/applicationScript.js"};
+          Repository repository = git.getRepository();
+          Map<String, ObjectId> blobIds = GitHelper.getBlobIds(repository,
+              getDevelopmentTree(repository), Arrays.asList(neededFileNames));
+
+          ObjectId[] neededBlobIds = new ObjectId[neededFileNames.length];
+          for (int i = 0; i < neededFileNames.length; i++) {
+            neededBlobIds[i] = blobIds.get(neededFileNames[i]);
+            if (neededBlobIds[i] == null) {
+              throw new FileNotFoundException(neededFileNames[i] + " not found");
+            }
+          }
+          String etag = ETags.of(neededBlobIds);
+          if (ETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+          }
 
-          for (String fileName : neededFileNames) {
-            String content = GitHelper.getFileContent(git.getRepository(), fileName);
-            String contentBase64 = Base64.getEncoder().encodeToString(content.getBytes("utf-8"));
-
-            JSONObject fileObject = new JSONObject();
-            fileObject.put("fileName", fileName);
-            fileObject.put("content", contentBase64);
-            fileList.add(fileObject);
+          // the contents are encoded directly into the response instead of building JSONObjects
+          JsonWriter response = new JsonWriter().beginObject().name("files").beginArray();
+          for (int i = 0; i < neededFileNames.length; i++) {
+            response.beginObject().name("fileName").value(neededFileNames[i]).name("content");
+            GitHelper.appendBase64Content(repository, neededBlobIds[i], response.beginString());
+            response.endString().endObject();
           }
+          response.endArray().endObject();
 
-          result.put("files", fileList);
-          HttpResponse r = new HttpResponse(result.toJSONString(), HttpURLConnection.HTTP_OK);
+          HttpResponse r = new HttpResponse(response.toString(), HttpURLConnection.HTTP_OK);
+          r.setHeader("ETag", etag);
           return r;
-        } else {
-          HttpResponse r = new HttpResponse(repositoryName + " currently unavailable",
-              HttpURLConnection.HTTP_UNAVAILABLE);
+        } catch (FileNotFoundException e) {
+          logger.info(repositoryName + " not found");
+          HttpResponse r =
+              new HttpResponse(repositoryName + " not found", HttpURLConnection.HTTP_NOT_FOUND);
+          return r;
+        } catch (Exception e) {
+          logger.printStackTrace(e);
+          HttpResponse r =
+              new HttpResponse("Internal Error", HttpURLConnection.HTTP_INTERNAL_ERROR);
           return r;
         }
-      } catch (FileNotFoundException e) {
-        logger.info(repositoryName + " not found");
-        HttpResponse r =
-            new HttpResponse(repositoryName + " not found", HttpURLConnection.HTTP_NOT_FOUND);
-        return r;
-      } catch (Exception e) {
-        logger.printStackTrace(e);
-        HttpResponse r = new HttpResponse("Internal Error", HttpURLConnection.HTTP_INTERNAL_ERROR);
+      } else {
+        HttpResponse r = new HttpResponse("Only frontend components are supported",
+            HttpURLConnection.HTTP_NOT_ACCEPTABLE);
         return r;
       }
-    } else {
-      HttpResponse r = new HttpResponse("Only frontend components are supported",
-          HttpURLConnection.HTTP_NOT_ACCEPTABLE);
-      return r;
-    }
 
+    });
   }
 
   /**
@@ -630,7 +1332,6 @@ public class GitHubProxyService extends RESTService {
    *         encoded in base64 if everything was fine.
    */
 
-  @SuppressWarnings("unchecked")
   @GET
   @Path("{repositoryName}/file/")
   @Produces(MediaType.APPLICATION_JSON)
@@ -639,48 +1340,118 @@ public class GitHubProxyService extends RESTService {
       notes = "Returns the content of the given file within the specified repository.")
   @ApiResponses(value = {@ApiResponse(code = HttpURLConnection.HTTP_OK, message = "OK, file found"),
       @ApiResponse(code = HttpURLConnection.HTTP_INTERNAL_ERROR, message = "Internal server error"),
-      @ApiResponse(code = HttpURLConnection.HTTP_NOT_FOUND, message = "404, file not found")})
+      @ApiResponse(code = HttpURLConnection.HTTP_NOT_FOUND, message = "404, file not found"),
+      @ApiResponse(code = HttpURLConnection.HTTP_NOT_MODIFIED,
+          message = "Not modified since the version of the given ETag")})
   public HttpResponse getFileInRepository(@PathParam("repositoryName") String repositoryName,
-      @QueryParam("file") String fileName) {
+      @QueryParam("file") String fileName, @HeaderParam("If-None-Match") String ifNoneMatch) {
+    return timed("getFileInRepository", () -> {
 
-    try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization, "development")) {
+      try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization)) {
+
+        Repository repository = git.getRepository();
+        RevTree tree = getDevelopmentTree(repository);
+        String traceFileName = getTraceFileName(fileName);
+        Map<String, ObjectId> blobIds = GitHelper.getBlobIds(repository, tree,
+            Arrays.asList(fileName, "traces/tracedFiles.json", traceFileName));
+        ObjectId blobId = blobIds.get(fileName);
+        if (blobId == null) {
+          throw new FileNotFoundException(fileName + " not found");
+        }
 
-      JSONObject fileTraces = this.getFileTraces(git, fileName);
+        // the response consists of the file and its traces
+        String etag = ETags.of(blobId, blobIds.get("traces/tracedFiles.json"),
+            blobIds.get(traceFileName));
+        if (ETags.matches(ifNoneMatch, etag)) {
+          return notModified(etag);
+        }
+        JSONObject fileTraces = this.getFileTraces(repositoryName, repository, tree, fileName);
 
-      String content = GitHelper.getFileContent(git.getRepository(), fileName);
-      String contentBase64 = Base64.getEncoder().encodeToString(content.getBytes("utf-8"));
+        // the content is encoded directly into the response instead of building a JSONObject
+        JsonWriter response = new JsonWriter().beginObject().name("content");
+        GitHelper.appendBase64Content(repository, blobId, response.beginString());
+        response.endString();
 
-      JSONObject resultObject = new JSONObject();
-      resultObject.put("content", contentBase64);
+        // add file traces to the json response if one exists
+        if (fileTraces != null) {
+          response.name("traceModel").rawValue(fileTraces.toJSONString());
+        }
+        response.endObject();
 
-      // add file traces to the json response if one exists
-      if (fileTraces != null) {
-        resultObject.put("traceModel", fileTraces);
+        HttpResponse r = new HttpResponse(response.toString(), HttpURLConnection.HTTP_OK);
+        r.setHeader("ETag", etag);
+        return r;
+      } catch (FileNotFoundException fileNotFoundException) {
+        HttpResponse r = new HttpResponse("Not found", HttpURLConnection.HTTP_NOT_FOUND);
+        return r;
+      } catch (Exception e) {
+        logger.printStackTrace(e);
+        HttpResponse r = new HttpResponse("Internal Error", HttpURLConnection.HTTP_INTERNAL_ERROR);
+        return r;
       }
 
-      HttpResponse r = new HttpResponse(resultObject.toJSONString(), HttpURLConnection.HTTP_OK);
-      return r;
-    } catch (FileNotFoundException fileNotFoundException) {
-      HttpResponse r = new HttpResponse("Not found", HttpURLConnection.HTTP_NOT_FOUND);
-      return r;
-    } catch (Exception e) {
-      logger.printStackTrace(e);
-      HttpResponse r = new HttpResponse("Internal Error", HttpURLConnection.HTTP_INTERNAL_ERROR);
-      return r;
-    }
+    });
+  }
+
+  /**
+   * Returns the raw content of a file in a repository, without any encoding
+   * 
+   * @param repositoryName The name of the repository
+   * @param fileName The absolute path of the file
+   * @return HttpResponse containing the status code of the request and the raw content of the file
+   *         if everything was fine.
+   */
 
+  @GET
+  @Path("{repositoryName}/file/raw")
+  @Produces("application/octet-stream")
+  @ApiOperation(value = "Returns the raw content of the given file within the specified repository.",
+      notes = "Returns the raw content of the given file within the specified repository.")
+  @ApiResponses(value = {@ApiResponse(code = HttpURLConnection.HTTP_OK, message = "OK, file found"),
+      @ApiResponse(code = HttpURLConnection.HTTP_INTERNAL_ERROR, message = "Internal server error"),
+      @ApiResponse(code = HttpURLConnection.HTTP_NOT_FOUND, message = "404, file not found")})
+  public HttpResponse getRawFileInRepository(@PathParam("repositoryName") String repositoryName,
+      @QueryParam("file") String fileName) {
+    return timed("getRawFileInRepository", () -> {
+
+      try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization)) {
+        Repository repository = git.getRepository();
+        ObjectId blobId =
+            GitHelper.getBlobId(repository, getDevelopmentTree(repository), fileName);
+        if (blobId == null) {
+          throw new FileNotFoundException(fileName + " not found");
+        }
+
+        HttpResponse r =
+            new HttpResponse(GitHelper.getBlobBytes(repository, blobId), HttpURLConnection.HTTP_OK);
+        r.setHeader("Content-Type", "application/octet-stream");
+        return r;
+      } catch (FileNotFoundException fileNotFoundException) {
+        HttpResponse r = new HttpResponse("Not found", HttpURLConnection.HTTP_NOT_FOUND);
+        return r;
+      } catch (Exception e) {
+        logger.printStackTrace(e);
+        HttpResponse r = new HttpResponse("Internal Error", HttpURLConnection.HTTP_INTERNAL_ERROR);
+        return r;
+      }
+
+    });
   }
 
   /**
-   * List all files of a folder of a repository.
+   * List all files of a folder of a repository. In recursive mode, the files of all subfolders
+   * are listed as well, together with the sizes and blob ids of the files, in pages of the given
+   * size. The cursor of the next page is returned with each page that is not the last one.
    * 
    * @param repositoryName the name of the repository
    * @param path the path of the folder whose files should be listed
+   * @param recursive "true" to list the files of all subfolders
+   * @param pageSize the maximum number of files per page in recursive mode
+   * @param cursor the cursor of the requested page in recursive mode, none for the first page
    * @return HttpResponse containing the files of the given repository as a json string
    * 
    */
 
-  @SuppressWarnings("unchecked")
   @GET
   @Path("/{repoName}/files")
   @Produces(MediaType.APPLICATION_JSON)
@@ -689,58 +1460,150 @@ public class GitHubProxyService extends RESTService {
   @ApiResponses(value = {
       @ApiResponse(code = HttpURLConnection.HTTP_OK, message = "OK, repository of the model found"),
       @ApiResponse(code = HttpURLConnection.HTTP_INTERNAL_ERROR,
-          message = "Internal server error")})
+          message = "Internal server error"),
+      @ApiResponse(code = HttpURLConnection.HTTP_NOT_MODIFIED,
+          message = "Not modified since the version of the given ETag"),
+      @ApiResponse(code = HttpURLConnection.HTTP_BAD_REQUEST,
+          message = "Invalid page size or cursor"),
+      @ApiResponse(code = HttpURLConnection.HTTP_GONE,
+          message = "The tree of the cursor does not exist any more")})
   public HttpResponse listFilesInRepository(@PathParam("repoName") String repositoryName,
-      @QueryParam("path") String path) {
+      @QueryParam("path") String path, @QueryParam("recursive") String recursive,
+      @QueryParam("pageSize") String pageSize, @QueryParam("cursor") String cursor,
+      @HeaderParam("If-None-Match") String ifNoneMatch) {
+    final String folder = path == null || path.equals("/") ? "" : path;
+    return timed("listFilesInRepository", () -> {
+
+      // the entries are written as the tree walk produces them
+      JsonWriter files = new JsonWriter().beginObject().name("files").beginArray();
+      String etag;
+      try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization);
+          TreeWalk treeWalk = new TreeWalk(git.getRepository())) {
+
+        Repository repository = git.getRepository();
+        if ("true".equals(recursive)) {
+          return this.listFilesRecursively(repositoryName, repository, folder, pageSize, cursor,
+              ifNoneMatch);
+        }
+        RevTree tree = getDevelopmentTree(repository);
+        // the tree contains the trace model, so the listing only changes with the tree
+        etag = ETags.of(tree);
+        if (ETags.matches(ifNoneMatch, etag)) {
+          return notModified(etag);
+        }
+        TraceModel traceModel = this.getTraceModel(repositoryName, repository, tree);
+        treeWalk.addTree(tree);
 
-    if (path == null) {
-      path = "";
-    } else if (path.equals("/")) {
-      path = "";
-    }
+        if (folder.isEmpty()) {
+          while (treeWalk.next()) {
+            addFiletoFileList(treeWalk, files, traceModel);
+          }
+        } else {
 
-    JSONObject jsonResponse = new JSONObject();
-    JSONArray files = new JSONArray();
-    jsonResponse.put("files", files);
-    try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOrganization, "development");) {
+          PathFilter filter = PathFilter.create(folder);
+          boolean folderFound = false;
+          treeWalk.setFilter(filter);
 
-      JSONArray tracedFiles = (JSONArray) this.getTraceModel(git).get("tracedFiles");
-      TreeWalk treeWalk = GitHelper.getRepositoryTreeWalk(git.getRepository());
+          while (treeWalk.next()) {
 
-      if (path.isEmpty()) {
-        while (treeWalk.next()) {
-          addFile(treeWalk, files, tracedFiles);
+            if (!folderFound && treeWalk.isSubtree()) {
+              treeWalk.enterSubtree();
+            }
+            if (treeWalk.getPathString().equals(folder)) {
+              folderFound = true;
+              continue;
+            }
+            if (folderFound) {
+              addFiletoFileList(treeWalk, files, traceModel);
+            }
+          }
         }
-      } else {
 
-        PathFilter filter = PathFilter.create(path);
-        boolean folderFound = false;
-        treeWalk.setFilter(filter);
+      } catch (Exception e) {
+        L2pLogger.logEvent(Event.SERVICE_ERROR, "getModelFiles: exception fetching files: " + e);
+        logger.printStackTrace(e);
+        HttpResponse r = new HttpResponse("IO error!", HttpURLConnection.HTTP_INTERNAL_ERROR);
+        return r;
+      }
+
+      files.endArray().endObject();
+      HttpResponse r = new HttpResponse(files.toString(), HttpURLConnection.HTTP_OK);
+      r.setHeader("ETag", etag);
+      return r;
+    });
+  }
 
-        while (treeWalk.next()) {
+  /**
+   * List a page of the files of a folder and all its subfolders
+   * 
+   * @param repositoryName The name of the repository
+   * @param repository The repository
+   * @param folder The path of the listed folder, empty for the root folder
+   * @param pageSize The maximum number of files of the page, null for the maximum
+   * @param cursor The cursor of the page, null for the first page
+   * @param ifNoneMatch The If-None-Match header of the request
+   * @return HttpResponse containing the page as a json string
+   * @throws Exception Thrown if the tree could not be listed
+   */
 
-          if (!folderFound && treeWalk.isSubtree()) {
-            treeWalk.enterSubtree();
-          }
-          if (treeWalk.getPathString().equals(path)) {
-            folderFound = true;
-            continue;
-          }
-          if (folderFound) {
-            addFiletoFileList(treeWalk, files, tracedFiles, path);
-          }
-        }
+  private HttpResponse listFilesRecursively(String repositoryName, Repository repository,
+      String folder, String pageSize, String cursor, String ifNoneMatch) throws Exception {
+    TreeListing.Cursor position = null;
+    int size = this.maxListingPageSize;
+    try {
+      if (cursor != null && !cursor.isEmpty()) {
+        position = TreeListing.decodeCursor(cursor);
+      }
+      if (pageSize != null) {
+        size = Math.min(Integer.parseInt(pageSize), this.maxListingPageSize);
       }
+    } catch (IllegalArgumentException e) {
+      return new HttpResponse("Invalid page size or cursor", HttpURLConnection.HTTP_BAD_REQUEST);
+    }
+    if (size < 1) {
+      return new HttpResponse("Invalid page size or cursor", HttpURLConnection.HTTP_BAD_REQUEST);
+    }
 
-    } catch (Exception e) {
-      L2pLogger.logEvent(Event.SERVICE_ERROR, "getModelFiles: exception fetching files: " + e);
-      logger.printStackTrace(e);
-      HttpResponse r = new HttpResponse("IO error!", HttpURLConnection.HTTP_INTERNAL_ERROR);
-      return r;
+    // following pages are read from the tree of the first page, even if the branch moved on
+    RevTree tree;
+    if (position == null) {
+      tree = getDevelopmentTree(repository);
+    } else {
+      try {
+        tree = GitHelper.getTree(repository, position.getTreeId());
+      } catch (MissingObjectException e) {
+        return new HttpResponse("The listed tree does not exist any more",
+            HttpURLConnection.HTTP_GONE);
+      } catch (IncorrectObjectTypeException e) {
+        return new HttpResponse("Invalid page size or cursor", HttpURLConnection.HTTP_BAD_REQUEST);
+      }
+    }
+    // a page only depends on the tree and the requested folder, size and position
+    String etag = ETags.of(tree);
+    if (ETags.matches(ifNoneMatch, etag)) {
+      return notModified(etag);
     }
 
-    HttpResponse r =
-        new HttpResponse(jsonResponse.toString().replace("\\", ""), HttpURLConnection.HTTP_OK);
+    TreeListing.Page page;
+    try {
+      page = this.getTreeListing(repositoryName, repository, tree).getPage(folder, position, size);
+    } catch (IllegalArgumentException e) {
+      return new HttpResponse("Invalid page size or cursor", HttpURLConnection.HTTP_BAD_REQUEST);
+    }
+
+    JsonWriter files = new JsonWriter().beginObject().name("files").beginArray();
+    for (TreeListing.Entry entry : page.getEntries()) {
+      files.beginObject().name("type").value(entry.isFolder() ? "folder" : "file").name("path")
+          .value(entry.getPath());
+      if (!entry.isFolder()) {
+        files.name("size").value(entry.getSize()).name("blobId").value(entry.getBlobId().name());
+      }
+      files.endObject();
+    }
+    files.endArray().name("cursor").value(page.getCursor()).endObject();
+
+    HttpResponse r = new HttpResponse(files.toString(), HttpURLConnection.HTTP_OK);
+    r.setHeader("ETag", etag);
     return r;
   }
 
@@ -751,6 +1614,7 @@ public class GitHubProxyService extends RESTService {
    * @return HttpResponse containing a status code
    */
 
+  @SuppressWarnings("try")
   @GET
   @Path("/{repoName}/delete")
   @Produces(MediaType.APPLICATION_JSON)
@@ -762,14 +1626,72 @@ public class GitHubProxyService extends RESTService {
           message = "Internal server error")})
 
   public HttpResponse deleteLocalRepository(@PathParam("repoName") String repositoryName) {
-    try {
-      FileUtils.deleteDirectory(new File(repositoryName));
-    } catch (IOException e) {
-      e.printStackTrace();
-      logger.printStackTrace(e);
-      return new HttpResponse(e.getMessage(), HttpURLConnection.HTTP_INTERNAL_ERROR);
-    }
-    return new HttpResponse("Ok", HttpURLConnection.HTTP_OK);
+    return timed("deleteLocalRepository", () -> {
+      try (LockHandle lock = GitHelper.lockForWriting(repositoryName)) {
+        // the remote repository may be recreated before the next clone
+        GitHelper.invalidateRemoteRepository(repositoryName, gitHubOrganization);
+        GitHelper.deleteLocalRepository(repositoryName);
+        this.traceModels.remove(repositoryName);
+        this.segmentIndexes.remove(repositoryName);
+      } catch (IOException e) {
+        e.printStackTrace();
+        logger.printStackTrace(e);
+        return new HttpResponse(e.getMessage(), HttpURLConnection.HTTP_INTERNAL_ERROR);
+      }
+      return new HttpResponse("Ok", HttpURLConnection.HTTP_OK);
+    });
+  }
+
+  /**
+   * Get the progress of the warmup of repositories started with the service
+   * 
+   * @return HttpResponse containing the state of the warmup and of each repository
+   */
+
+  @SuppressWarnings("unchecked")
+  @GET
+  @Path("/warmup")
+  @Produces(MediaType.APPLICATION_JSON)
+  @ApiOperation(value = "Returns the progress of the repository warmup",
+      notes = "Returns the progress of the warmup of repositories started with the service")
+  @ApiResponses(value = {@ApiResponse(code = HttpURLConnection.HTTP_OK, message = "OK")})
+  public HttpResponse getWarmupStatus() {
+    return timed("getWarmupStatus", () -> {
+      JSONObject repositories = new JSONObject();
+      for (Map.Entry<String, RepositoryWarmup.State> repository : warmup.getRepositoryStates()
+          .entrySet()) {
+        repositories.put(repository.getKey(), repository.getValue().name().toLowerCase());
+      }
+
+      JSONObject result = new JSONObject();
+      result.put("status", warmup.getState().name().toLowerCase());
+      result.put("total", warmup.getTotal());
+      result.put("finished", warmup.getFinished());
+      result.put("repositories", repositories);
+      result.put("errors", new JSONObject(warmup.getErrors()));
+      return new HttpResponse(result.toJSONString(), HttpURLConnection.HTTP_OK);
+    });
+  }
+
+  /**
+   * Get the request and git operation metrics of the service in the Prometheus text format
+   * 
+   * @return HttpResponse containing the metrics
+   */
+
+  @GET
+  @Path("/metrics")
+  @Produces(MediaType.TEXT_PLAIN)
+  @ApiOperation(value = "Returns the metrics of the service",
+      notes = "Returns latency histograms and counters of requests and git operations in the "
+          + "Prometheus text format")
+  @ApiResponses(value = {@ApiResponse(code = HttpURLConnection.HTTP_OK, message = "OK")})
+  public HttpResponse getMetrics() {
+    return timed("getMetrics", () -> {
+      HttpResponse r = new HttpResponse(metrics.toPrometheusText(), HttpURLConnection.HTTP_OK);
+      r.setHeader("Content-Type", "text/plain; version=0.0.4");
+      return r;
+    });
   }
 
   ////////////////////////////////////////////////////////////////////////////////////////
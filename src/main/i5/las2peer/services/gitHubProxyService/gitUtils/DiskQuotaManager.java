@@ -0,0 +1,168 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import i5.las2peer.logging.L2pLogger;
+import i5.las2peer.services.gitHubProxyService.GitHubProxyService;
+
+/**
+ * Keeps the disk usage of the local clones below a quota. If the clones use more space than
+ * allowed, the least recently used ones are evicted until the quota is met again. Clones that
+ * cannot be evicted, e.g. because they contain unpushed commits, are skipped.
+ */
+
+public class DiskQuotaManager {
+
+  private static final L2pLogger logger = L2pLogger.getInstance(GitHubProxyService.class.getName());
+
+  /**
+   * Access to the local clones
+   */
+
+  public interface LocalRepositories {
+    /** List the names of all local clones */
+    List<String> list();
+
+    /** Get the disk usage of a clone in bytes */
+    long size(String repositoryName) throws Exception;
+
+    /** Evict a clone, returning false if it must be kept */
+    boolean evict(String repositoryName) throws Exception;
+  }
+
+  private final LocalRepositories repositories;
+  private final ConcurrentHashMap<String, Long> lastAccess = new ConcurrentHashMap<String, Long>();
+  private volatile long quota = 0;
+  private ScheduledExecutorService executor;
+
+  /**
+   * Create a new disk quota manager. No quota is enforced before one is configured.
+   *
+   * @param repositories Access to the local clones
+   */
+
+  public DiskQuotaManager(LocalRepositories repositories) {
+    this.repositories = repositories;
+  }
+
+  /**
+   * Record an access of a clone
+   *
+   * @param repositoryName The name of the repository
+   */
+
+  public void recordAccess(String repositoryName) {
+    lastAccess.put(repositoryName, System.currentTimeMillis());
+  }
+
+  /**
+   * Forget a clone, e.g. because it was deleted
+   *
+   * @param repositoryName The name of the repository
+   */
+
+  public void remove(String repositoryName) {
+    lastAccess.remove(repositoryName);
+  }
+
+  /**
+   * Enforce a quota periodically in the background. A previously started enforcement is replaced.
+   *
+   * @param quota The maximum disk usage of all clones in bytes, 0 for no limit
+   * @param interval The interval in milliseconds in which the quota is checked
+   */
+
+  public synchronized void start(long quota, long interval) {
+    this.quota = quota;
+    shutdown();
+    if (quota <= 0) {
+      return;
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "disk-quota-manager");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(() -> enforce(), interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop enforcing the quota in the background
+   */
+
+  public synchronized void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /**
+   * Evict the least recently used clones until their disk usage is below the quota. Clones that
+   * were not accessed since the service started are considered least recently used.
+   *
+   * @return The names of the evicted repositories
+   */
+
+  public synchronized List<String> enforce() {
+    List<String> evicted = new ArrayList<String>();
+    if (quota <= 0) {
+      return evicted;
+    }
+
+    Map<String, Long> sizes = new HashMap<String, Long>();
+    long usage = 0;
+    for (String repositoryName : repositories.list()) {
+      try {
+        long size = repositories.size(repositoryName);
+        sizes.put(repositoryName, size);
+        usage += size;
+      } catch (Exception e) {
+        logger.warning("Could not determine the size of " + repositoryName + ": " + e.getMessage());
+      }
+    }
+    if (usage <= quota) {
+      return evicted;
+    }
+
+    List<String> candidates = new ArrayList<String>(sizes.keySet());
+    candidates.sort((first, second) -> Long.compare(lastAccess.getOrDefault(first, 0L),
+        lastAccess.getOrDefault(second, 0L)));
+    for (String repositoryName : candidates) {
+      if (usage <= quota) {
+        break;
+      }
+      try {
+        if (repositories.evict(repositoryName)) {
+          usage -= sizes.get(repositoryName);
+          lastAccess.remove(repositoryName);
+          evicted.add(repositoryName);
+        }
+      } catch (Exception e) {
+        logger.warning("Could not evict " + repositoryName + ": " + e.getMessage());
+      }
+    }
+
+    logger.info("Evicted " + evicted.size() + " repositories, using " + usage + " of " + quota
+        + " bytes");
+    return evicted;
+  }
+
+  /**
+   * Set the quota without starting the background enforcement
+   *
+   * @param quota The maximum disk usage of all clones in bytes, 0 for no limit
+   */
+
+  void setQuota(long quota) {
+    this.quota = quota;
+  }
+
+}
@@ -0,0 +1,66 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import java.security.MessageDigest;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Derives HTTP entity tags from git object ids. Since objects are content addressed, a response
+ * built from the same objects is the same, so clients can revalidate their copy with
+ * If-None-Match without the content being read again.
+ */
+
+public class ETags {
+
+  private ETags() {}
+
+  /**
+   * Create the entity tag of a response built from the given objects
+   *
+   * @param ids The ids of the objects the response is built from, null for missing objects
+   * @return The quoted entity tag
+   */
+
+  public static String of(ObjectId... ids) {
+    if (ids.length == 1 && ids[0] != null) {
+      return '"' + ids[0].name() + '"';
+    }
+    MessageDigest digest = Constants.newMessageDigest();
+    byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+    for (ObjectId id : ids) {
+      (id != null ? id : ObjectId.zeroId()).copyRawTo(raw, 0);
+      digest.update(raw);
+    }
+    return '"' + ObjectId.fromRaw(digest.digest()).name() + '"';
+  }
+
+  /**
+   * Check whether the If-None-Match header of a request matches an entity tag, using the weak
+   * comparison required for conditional GET requests
+   *
+   * @param ifNoneMatch The value of the If-None-Match header, may be null
+   * @param etag The quoted entity tag of the current response
+   * @return True if the client's copy is still current
+   */
+
+  public static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || ifNoneMatch.trim().isEmpty()) {
+      return false;
+    }
+    if (ifNoneMatch.trim().equals("*")) {
+      return true;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
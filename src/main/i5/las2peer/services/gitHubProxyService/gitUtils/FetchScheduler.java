@@ -0,0 +1,233 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import i5.las2peer.logging.L2pLogger;
+import i5.las2peer.services.gitHubProxyService.GitHubProxyService;
+
+/**
+ * Fetches the remotes of used repositories periodically in the background, so that local clones
+ * stay fresh and pushes only have to transfer small deltas. Every accessed repository gets its own
+ * fetch interval, which is halved while the repository is accessed between two fetches and doubled
+ * while it is not, within the configured bounds. The fetch times are spread by a random jitter and
+ * the number of concurrent fetches is limited. Repositories that were not accessed for a while are
+ * not fetched any more.
+ */
+
+public class FetchScheduler {
+
+  private static final L2pLogger logger = L2pLogger.getInstance(GitHubProxyService.class.getName());
+
+  /**
+   * The action performing the actual fetch of a repository
+   */
+
+  public interface FetchAction {
+    void fetch(String repositoryName) throws Exception;
+  }
+
+  private static class Schedule {
+    private long interval;
+    private long nextFetch;
+    private long lastAccess;
+    private int accesses = 0;
+    private boolean running = false;
+  }
+
+  private final FetchAction action;
+  private final Map<String, Schedule> schedules = new HashMap<String, Schedule>();
+  private final Random random = new Random();
+
+  private volatile long minInterval;
+  private volatile long maxInterval;
+  private volatile long idleTimeout;
+  private volatile double jitter;
+
+  private ScheduledExecutorService ticker;
+  private ExecutorService fetchers;
+
+  /**
+   * Create a new fetch scheduler. No fetches are run before it is started.
+   *
+   * @param action The action fetching a repository
+   * @param minInterval The shortest interval in milliseconds between two fetches of a repository
+   * @param maxInterval The longest interval in milliseconds between two fetches of a repository
+   * @param idleTimeout The time in milliseconds after its last access a repository is not fetched
+   *        any more
+   * @param jitter The fraction by which the intervals are randomly lengthened or shortened
+   */
+
+  public FetchScheduler(FetchAction action, long minInterval, long maxInterval, long idleTimeout,
+      double jitter) {
+    this.action = action;
+    configure(minInterval, maxInterval, idleTimeout, jitter);
+  }
+
+  /**
+   * Change the intervals of the scheduler. Schedules already planned are kept.
+   *
+   * @param minInterval The shortest interval in milliseconds between two fetches of a repository
+   * @param maxInterval The longest interval in milliseconds between two fetches of a repository
+   * @param idleTimeout The time in milliseconds after its last access a repository is not fetched
+   *        any more
+   * @param jitter The fraction by which the intervals are randomly lengthened or shortened
+   */
+
+  public void configure(long minInterval, long maxInterval, long idleTimeout, double jitter) {
+    this.minInterval = minInterval;
+    this.maxInterval = Math.max(minInterval, maxInterval);
+    this.idleTimeout = idleTimeout;
+    this.jitter = jitter;
+  }
+
+  /**
+   * Start fetching in the background. Starting a running scheduler has no effect.
+   *
+   * @param threads The number of fetches running in parallel
+   * @param tickInterval The interval in milliseconds in which due fetches are looked for
+   */
+
+  public synchronized void start(int threads, long tickInterval) {
+    if (ticker != null) {
+      return;
+    }
+    ThreadFactory threadFactory = new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "fetch-scheduler");
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+    fetchers = Executors.newFixedThreadPool(threads, threadFactory);
+    ticker = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    ticker.scheduleWithFixedDelay(() -> runDueFetches(), tickInterval, tickInterval,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop fetching in the background
+   */
+
+  public synchronized void shutdown() {
+    if (ticker != null) {
+      ticker.shutdownNow();
+      fetchers.shutdownNow();
+      ticker = null;
+      fetchers = null;
+    }
+  }
+
+  /**
+   * Record an access of a repository. A repository accessed for the first time is fetched after
+   * the shortest interval.
+   *
+   * @param repositoryName The name of the repository
+   */
+
+  public synchronized void recordAccess(String repositoryName) {
+    long now = System.currentTimeMillis();
+    Schedule schedule = schedules.get(repositoryName);
+    if (schedule == null) {
+      schedule = new Schedule();
+      schedule.interval = minInterval;
+      schedule.nextFetch = now + jittered(minInterval);
+      schedules.put(repositoryName, schedule);
+    }
+    schedule.accesses++;
+    schedule.lastAccess = now;
+  }
+
+  /**
+   * Stop fetching a repository, e.g. because it was deleted
+   *
+   * @param repositoryName The name of the repository
+   */
+
+  public synchronized void remove(String repositoryName) {
+    schedules.remove(repositoryName);
+  }
+
+  /**
+   * Get the current fetch interval of a repository
+   *
+   * @param repositoryName The name of the repository
+   * @return The interval in milliseconds or -1 if the repository is not fetched
+   */
+
+  public synchronized long getInterval(String repositoryName) {
+    Schedule schedule = schedules.get(repositoryName);
+    return schedule != null ? schedule.interval : -1;
+  }
+
+  /**
+   * Start the fetches of all repositories whose next fetch is due
+   */
+
+  void runDueFetches() {
+    List<String> due = new ArrayList<String>();
+    synchronized (this) {
+      long now = System.currentTimeMillis();
+      for (Map.Entry<String, Schedule> entry : schedules.entrySet()) {
+        Schedule schedule = entry.getValue();
+        if (!schedule.running && schedule.nextFetch <= now) {
+          schedule.running = true;
+          due.add(entry.getKey());
+        }
+      }
+    }
+
+    for (final String repositoryName : due) {
+      ExecutorService executor = fetchers;
+      if (executor == null) {
+        fetch(repositoryName);
+      } else {
+        executor.execute(() -> fetch(repositoryName));
+      }
+    }
+  }
+
+  private void fetch(String repositoryName) {
+    try {
+      action.fetch(repositoryName);
+    } catch (Exception e) {
+      logger.warning("Background fetch of " + repositoryName + " failed: " + e.getMessage());
+    }
+
+    synchronized (this) {
+      Schedule schedule = schedules.get(repositoryName);
+      if (schedule == null) {
+        return;
+      }
+      long now = System.currentTimeMillis();
+      if (now - schedule.lastAccess > idleTimeout) {
+        schedules.remove(repositoryName);
+        return;
+      }
+
+      // fetch frequently used repositories more often
+      if (schedule.accesses > 0) {
+        schedule.interval = Math.max(minInterval, schedule.interval / 2);
+      } else {
+        schedule.interval = Math.min(maxInterval, schedule.interval * 2);
+      }
+      schedule.accesses = 0;
+      schedule.running = false;
+      schedule.nextFetch = now + jittered(schedule.interval);
+    }
+  }
+
+  private long jittered(long interval) {
+    return (long) (interval * (1 + jitter * (2 * random.nextDouble() - 1)));
+  }
+
+}
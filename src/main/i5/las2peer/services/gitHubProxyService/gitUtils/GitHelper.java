@@ -3,36 +3,73 @@ package i5.las2peer.services.gitHubProxyService.gitUtils;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.LsRemoteCommand;
-import org.eclipse.jgit.api.MergeCommand;
-import org.eclipse.jgit.api.MergeResult;
 import org.eclipse.jgit.api.PushCommand;
 import org.eclipse.jgit.api.errors.CheckoutConflictException;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.InvalidRefNameException;
 import org.eclipse.jgit.api.errors.InvalidRemoteException;
+import org.eclipse.jgit.api.errors.JGitInternalException;
 import org.eclipse.jgit.api.errors.RefAlreadyExistsException;
 import org.eclipse.jgit.api.errors.RefNotFoundException;
 import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEditor;
+import org.eclipse.jgit.dircache.DirCacheEditor.DeletePath;
+import org.eclipse.jgit.dircache.DirCacheEditor.PathEdit;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.CommitBuilder;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.EmptyProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
 import org.eclipse.jgit.treewalk.TreeWalk;
-import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.FileUtils;
 
 import i5.las2peer.logging.L2pLogger;
 import i5.las2peer.logging.NodeObserver.Event;
 import i5.las2peer.services.gitHubProxyService.GitHubProxyService;
+import i5.las2peer.services.gitHubProxyService.metrics.MetricsRegistry;
 
 /**
  * A static helper class providing utilities to work with local repositories
@@ -48,9 +85,349 @@ public class GitHelper {
   // URLS WERE SWITCHED TO GITLAB FOR THE LAB COURSE
   // This service will be integrated into the code generation service anyways
   //private static final String baseURL = "https://github.com/";
-  private static final String baseURL = "http://ginkgo.informatik.rwth-aachen.de:4080/";
+  private static final String DEFAULT_BASE_URL = "http://ginkgo.informatik.rwth-aachen.de:4080/";
+  private static volatile String baseURL = DEFAULT_BASE_URL;
   public static CredentialsProvider cp;
-  
+
+  // keeps the repositories of frequently used components open across requests
+  private static final RepositoryPool repositoryPool = new RepositoryPool(64, 10 * 60 * 1000);
+
+  // serializes writers of the same repository
+  private static final RepositoryLockManager lockManager = new RepositoryLockManager();
+
+  // remembers which remote repositories exist, so that not every clone attempt asks the server
+  private static final RemoteRepositoryCache remoteRepositoryCache =
+      new RemoteRepositoryCache(url -> listRemoteRefs(url), 5 * 60 * 1000, 30 * 1000);
+
+  // the clones currently running, so that concurrent requests wait for them instead of cloning
+  private static final ConcurrentHashMap<String, CompletableFuture<Void>> runningClones =
+      new ConcurrentHashMap<String, CompletableFuture<Void>>();
+  private static volatile int cloneTimeout = 300;
+  private static volatile CloneMode cloneMode = CloneMode.FULL;
+
+  /**
+   * Determines which part of a remote repository is cloned. Clones are always checked out, but the
+   * working tree is not kept up to date: commits as well as renamed and deleted files only change
+   * the object database and the index, so the working tree drifts from the HEAD commit with the
+   * first change and must not be read.
+   */
+
+  public enum CloneMode {
+    /** Clone all branches */
+    FULL,
+    /** Clone and fetch only the master or gh-pages branch, the only branch that is read */
+    SINGLE_BRANCH
+  }
+
+  // keeps the remote tracking branches of used repositories up to date, once started
+  private static final FetchScheduler fetchScheduler =
+      new FetchScheduler(repositoryName -> fetchRepository(repositoryName), 60 * 1000,
+          15 * 60 * 1000, 60 * 60 * 1000, 0.2);
+
+  // the directory containing the local clones, the working directory if null
+  private static volatile File repositoryRoot = null;
+
+  // evicts least recently used clones if they take up too much disk space, once started
+  private static final DiskQuotaManager diskQuotaManager =
+      new DiskQuotaManager(new DiskQuotaManager.LocalRepositories() {
+        @Override
+        public List<String> list() {
+          return getLocalRepositoryNames();
+        }
+
+        @Override
+        public long size(String repositoryName) throws IOException {
+          return getDirectorySize(getRepositoryPath(repositoryName));
+        }
+
+        @Override
+        public boolean evict(String repositoryName) throws Exception {
+          return evictLocalRepository(repositoryName);
+        }
+      });
+
+  // packs the loose objects of written repositories, once started
+  private static final MaintenanceScheduler maintenanceScheduler =
+      new MaintenanceScheduler(new MaintenanceScheduler.Maintenance() {
+        @Override
+        public MaintenanceScheduler.Statistics getStatistics(String repositoryName)
+            throws Exception {
+          return getObjectStatistics(repositoryName);
+        }
+
+        @Override
+        public void collectGarbage(String repositoryName) throws Exception {
+          collectRepositoryGarbage(repositoryName);
+        }
+      }, 1000, 20);
+
+  private static final String GIT_OPERATION_DURATION = "githubproxy_git_operation_duration_seconds";
+  private static final MetricsRegistry metrics = MetricsRegistry.getInstance();
+
+  static {
+    metrics.describeHistogram(GIT_OPERATION_DURATION, "Duration of git operations in seconds");
+    metrics.registerGauge("githubproxy_open_repositories",
+        "Number of repositories kept open by the repository pool", () -> repositoryPool.size());
+    metrics.registerCounter("githubproxy_remote_repository_cache_hits_total",
+        "Number of remote repository checks answered from the cache",
+        () -> remoteRepositoryCache.getHits());
+    metrics.registerCounter("githubproxy_remote_repository_cache_misses_total",
+        "Number of remote repository checks that listed the remote refs",
+        () -> remoteRepositoryCache.getMisses());
+    metrics.registerGauge("githubproxy_loose_objects",
+        "Number of loose objects of the maintained repositories as of their last check",
+        () -> maintenanceScheduler.getLooseObjects());
+    metrics.registerGauge("githubproxy_pack_files",
+        "Number of pack files of the maintained repositories as of their last check",
+        () -> maintenanceScheduler.getPackFiles());
+    metrics.registerCounter("githubproxy_gc_runs_total",
+        "Number of garbage collections of local repositories",
+        () -> maintenanceScheduler.getRuns());
+  }
+
+  /**
+   * Start measuring the duration of a git operation
+   * 
+   * @param operation The name of the operation, e.g. open, fetch or push
+   * @return The running timer, which must be closed when the operation is done
+   */
+
+  static MetricsRegistry.Timer startTimer(String operation) {
+    return metrics.startTimer(GIT_OPERATION_DURATION, "operation", operation);
+  }
+
+  /**
+   * Acquire the exclusive lock of a repository, used for operations modifying it
+   * 
+   * @param repositoryName The name of the repository
+   * @return The held lock, which must be closed after use
+   */
+
+  public static RepositoryLockManager.LockHandle lockForWriting(String repositoryName) {
+    maintenanceScheduler.recordWrite(repositoryName);
+    return lockManager.lockForWriting(repositoryName);
+  }
+
+  /**
+   * Configure the bounds of the repository pool. Idle repositories are checked in the background
+   * once per idle timeout, so an unused repository is closed at most twice the timeout after its
+   * last use.
+   * 
+   * @param maxOpen The maximum number of repositories kept open
+   * @param idleTimeout The time in milliseconds after which an unused repository is closed
+   */
+
+  public static void configureRepositoryPool(int maxOpen, long idleTimeout) {
+    repositoryPool.setMaxOpen(maxOpen);
+    repositoryPool.setIdleTimeout(idleTimeout);
+    repositoryPool.startEviction(idleTimeout);
+  }
+
+  /**
+   * Configure how long the existence of remote repositories is cached
+   * 
+   * @param timeToLive The time in milliseconds an existing remote repository is cached
+   * @param negativeTimeToLive The time in milliseconds a missing remote repository is cached
+   */
+
+  public static void configureRemoteRepositoryCache(long timeToLive, long negativeTimeToLive) {
+    remoteRepositoryCache.setTimeToLive(timeToLive);
+    remoteRepositoryCache.setNegativeTimeToLive(negativeTimeToLive);
+  }
+
+  /**
+   * Configure the cloning of repositories
+   * 
+   * @param timeout The time in seconds a clone may take, both for the cloning request and for
+   *        requests waiting for it, also used as network timeout of single reads
+   * @param mode Determines which part of a remote repository is cloned
+   */
+
+  public static void configureCloning(int timeout, CloneMode mode) {
+    cloneTimeout = timeout;
+    cloneMode = mode;
+  }
+
+  /**
+   * Configure the server the remote repositories are cloned from, e.g. a local directory in tests
+   * 
+   * @param url The base url of the organizations of the server, the default server if null
+   */
+
+  static void configureBaseUrl(String url) {
+    baseURL = url != null ? url : DEFAULT_BASE_URL;
+  }
+
+  /**
+   * Start fetching the remotes of used repositories periodically in the background
+   * 
+   * @param threads The number of fetches running in parallel
+   * @param minInterval The shortest interval in milliseconds between two fetches of a repository
+   * @param maxInterval The longest interval in milliseconds between two fetches of a repository
+   * @param idleTimeout The time in milliseconds after its last use a repository is not fetched any
+   *        more
+   */
+
+  public static void startBackgroundFetching(int threads, long minInterval, long maxInterval,
+      long idleTimeout) {
+    fetchScheduler.configure(minInterval, maxInterval, idleTimeout, 0.2);
+    fetchScheduler.start(threads, 1000);
+  }
+
+  /**
+   * Stop fetching the remotes of used repositories in the background
+   */
+
+  public static void stopBackgroundFetching() {
+    fetchScheduler.shutdown();
+  }
+
+  /**
+   * Stop all background work on the local repositories, e.g. when the service is stopped
+   */
+
+  public static void stopBackgroundWork() {
+    stopBackgroundFetching();
+    maintenanceScheduler.shutdown();
+    diskQuotaManager.shutdown();
+    repositoryPool.shutdown();
+  }
+
+  /**
+   * Fetch the remote of a local repository. Only the remote tracking branches are updated, so
+   * neither readers nor writers of the repository are affected.
+   * 
+   * @param repositoryName The name of the repository
+   * @throws Exception Thrown if the fetch failed
+   */
+
+  @SuppressWarnings("try")
+  static void fetchRepository(String repositoryName) throws Exception {
+    try (Git git = getClonedGit(repositoryName)) {
+      if (git == null) {
+        // the repository was deleted in the meantime and must not be cloned again by the fetch
+        fetchScheduler.remove(repositoryName);
+        return;
+      }
+      try (MetricsRegistry.Timer timer = startTimer("background_fetch")) {
+        git.fetch().setCredentialsProvider(cp).setTimeout(cloneTimeout).call();
+      }
+    }
+    // fetches may add pack files
+    maintenanceScheduler.recordWrite(repositoryName);
+  }
+
+  /**
+   * Start collecting the garbage of written repositories in the background, so that their loose
+   * objects are packed and their pack files combined
+   * 
+   * @param looseObjectThreshold The number of loose objects above which a repository is collected
+   * @param packFileThreshold The number of pack files above which a repository is collected
+   * @param interval The interval in milliseconds in which written repositories are checked, 0 to
+   *        disable the garbage collection
+   */
+
+  public static void configureMaintenance(long looseObjectThreshold, long packFileThreshold,
+      long interval) {
+    maintenanceScheduler.configure(looseObjectThreshold, packFileThreshold);
+    maintenanceScheduler.start(interval);
+  }
+
+  /**
+   * Count the loose objects and pack files of a local repository
+   * 
+   * @param repositoryName The name of the repository
+   * @return The statistics of the object database
+   * @throws Exception Thrown if the repository could not be read
+   */
+
+  private static MaintenanceScheduler.Statistics getObjectStatistics(String repositoryName)
+      throws Exception {
+    try (Git git = getClonedGit(repositoryName)) {
+      if (git == null) {
+        return new MaintenanceScheduler.Statistics(0, 0);
+      }
+      Properties statistics = git.gc().getStatistics();
+      return new MaintenanceScheduler.Statistics(
+          ((Number) statistics.get("numberOfLooseObjects")).longValue(),
+          ((Number) statistics.get("numberOfPackFiles")).longValue());
+    }
+  }
+
+  /**
+   * Collect the garbage of a local repository. Writers of the repository wait for the collection,
+   * readers are not affected since packed objects are only removed from the loose objects after
+   * the new pack was written.
+   * 
+   * @param repositoryName The name of the repository
+   * @throws Exception Thrown if the garbage collection failed
+   */
+
+  @SuppressWarnings("try")
+  private static void collectRepositoryGarbage(String repositoryName) throws Exception {
+    try (RepositoryLockManager.LockHandle lock = lockManager.lockForWriting(repositoryName);
+        Git git = getClonedGit(repositoryName)) {
+      if (git == null) {
+        return;
+      }
+      try (MetricsRegistry.Timer timer = startTimer("gc")) {
+        git.gc().call();
+      }
+    }
+  }
+
+  /**
+   * Forget the cached existence and refs of a remote repository, e.g. after it was created
+   * 
+   * @param repositoryName The name of the repository
+   * @param gitHubOrganization The github organization of the repository
+   */
+
+  public static void invalidateRemoteRepository(String repositoryName,
+      String gitHubOrganization) {
+    remoteRepositoryCache.invalidate(getRemoteUrl(repositoryName, gitHubOrganization));
+  }
+
+  /**
+   * Close the pooled handle of a repository, e.g. before its local clone is deleted
+   * 
+   * @param repositoryName The name of the repository
+   */
+
+  public static void invalidateRepository(String repositoryName) {
+    repositoryPool.invalidate(repositoryName);
+    fetchScheduler.remove(repositoryName);
+    diskQuotaManager.remove(repositoryName);
+    maintenanceScheduler.remove(repositoryName);
+  }
+
+  /**
+   * Configure the directory the local clones are stored in
+   * 
+   * @param path The path of the directory, the working directory if empty
+   */
+
+  public static void configureRepositoryRoot(String path) {
+    if (path == null || path.trim().isEmpty()) {
+      repositoryRoot = null;
+    } else {
+      File root = new File(path.trim());
+      root.mkdirs();
+      repositoryRoot = root;
+    }
+  }
+
+  /**
+   * Start enforcing a disk quota for the local clones. If the clones use more space, the least
+   * recently used clones without unpushed changes are deleted.
+   * 
+   * @param quota The maximum disk usage of all clones in bytes, 0 for no limit
+   * @param interval The interval in milliseconds in which the disk usage is checked
+   */
+
+  public static void configureDiskQuota(long quota, long interval) {
+    diskQuotaManager.start(quota, interval);
+  }
 
   /**
    * Get the path for the given repository name
@@ -59,11 +436,141 @@ public class GitHelper {
    * @return A file pointing to the path of the repository
    */
   private static File getRepositoryPath(String repositoryName) {
-    return new File(repositoryName);
+    File root = repositoryRoot;
+    return root != null ? new File(root, repositoryName) : new File(repositoryName);
+  }
+
+  /**
+   * Delete the local clone of a repository. The clone is moved out of the way first, so that
+   * concurrent requests either see the complete clone or none at all. The caller should hold the
+   * write lock of the repository.
+   * 
+   * @param repositoryName The name of the repository
+   * @throws IOException Thrown if the clone could not be deleted
+   */
+
+  public static void deleteLocalRepository(String repositoryName) throws IOException {
+    invalidateRepository(repositoryName);
+    File localPath = getRepositoryPath(repositoryName).getAbsoluteFile();
+    if (!localPath.exists()) {
+      return;
+    }
+    File deletedPath = new File(localPath.getParentFile(),
+        "." + localPath.getName() + ".deleted-" + UUID.randomUUID());
+    Files.move(localPath.toPath(), deletedPath.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    FileUtils.delete(deletedPath, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
   }
 
   /**
-   * Rename a file within a repository. This method does not commit the renaming.
+   * Delete the local clone of a repository unless it is in use or contains changes that were not
+   * pushed to the remote yet. The clone is removed from the repository pool atomically, so that
+   * readers neither acquire it while it is deleted nor between the check and the deletion.
+   * 
+   * @param repositoryName The name of the repository
+   * @return True, if the clone was deleted
+   * @throws Exception Thrown if the clone could not be inspected or deleted
+   */
+
+  @SuppressWarnings("try")
+  static boolean evictLocalRepository(final String repositoryName) throws Exception {
+    try (RepositoryLockManager.LockHandle lock = lockManager.lockForWriting(repositoryName)) {
+      return repositoryPool.removeIfUnused(repositoryName, () -> {
+        if (hasUnpushedChanges(repositoryName)) {
+          return false;
+        }
+        L2pLogger.logEvent(Event.SERVICE_MESSAGE, "evicting local repository " + repositoryName);
+        deleteLocalRepository(repositoryName);
+        return true;
+      });
+    }
+  }
+
+  /**
+   * Check whether a local branch of a repository contains commits that are not contained in any
+   * remote tracking branch, or whether its index contains changes that are not committed yet, like
+   * the renamed and deleted files staged for the next commit
+   * 
+   * @param repositoryName The name of the repository
+   * @return True, if there are unpushed changes
+   * @throws IOException Thrown if the repository could not be read
+   */
+
+  private static boolean hasUnpushedChanges(String repositoryName) throws IOException {
+    File gitDir = new File(getRepositoryPath(repositoryName), ".git");
+    try (Repository repository = new FileRepositoryBuilder().setGitDir(gitDir).build();
+        RevWalk revWalk = new RevWalk(repository);
+        TreeWalk treeWalk = new TreeWalk(repository)) {
+      ObjectId headTree = repository.resolve(Constants.HEAD + "^{tree}");
+      treeWalk.addTree(headTree != null ? new CanonicalTreeParser(null, treeWalk.getObjectReader(),
+          headTree) : new EmptyTreeIterator());
+      treeWalk.addTree(new DirCacheIterator(repository.readDirCache()));
+      treeWalk.setRecursive(true);
+      treeWalk.setFilter(TreeFilter.ANY_DIFF);
+      if (treeWalk.next()) {
+        return true;
+      }
+
+      Collection<Ref> remoteBranches =
+          repository.getRefDatabase().getRefs(Constants.R_REMOTES).values();
+      for (Ref branch : repository.getRefDatabase().getRefs(Constants.R_HEADS).values()) {
+        RevCommit commit = revWalk.parseCommit(branch.getObjectId());
+        boolean pushed = false;
+        for (Ref remoteBranch : remoteBranches) {
+          if (revWalk.isMergedInto(commit, revWalk.parseCommit(remoteBranch.getObjectId()))) {
+            pushed = true;
+            break;
+          }
+        }
+        if (!pushed) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static long getDirectorySize(File directory) throws IOException {
+    try (Stream<Path> files = Files.walk(directory.toPath())) {
+      return files.filter(file -> Files.isRegularFile(file))
+          .mapToLong(file -> file.toFile().length()).sum();
+    }
+  }
+
+  /**
+   * Get the names of all repositories cloned to the local file system. Hidden directories, like the
+   * temporary directories of running clones, are skipped.
+   * 
+   * @return The names of the local repositories
+   */
+
+  public static List<String> getLocalRepositoryNames() {
+    List<String> repositoryNames = new ArrayList<String>();
+    File root = repositoryRoot;
+    File[] directories = (root != null ? root : new File("")).getAbsoluteFile().listFiles();
+    if (directories != null) {
+      for (File directory : directories) {
+        if (!directory.isHidden() && new File(directory, ".git").isDirectory()) {
+          repositoryNames.add(directory.getName());
+        }
+      }
+    }
+    return repositoryNames;
+  }
+
+  /**
+   * Get the url of the remote repository with the given name
+   * 
+   * @param repositoryName The name of the repository
+   * @param gitHubOrganization The github organization of the repository
+   * @return The url of the remote repository
+   */
+  private static String getRemoteUrl(String repositoryName, String gitHubOrganization) {
+    return baseURL + gitHubOrganization + "/" + repositoryName + ".git";
+  }
+
+  /**
+   * Rename a file within a repository. This method does not commit the renaming, it is staged in
+   * the index for the next commit. The working tree is not changed.
    * 
    * @param repositoryName The name of the repository
    * @param gitHubOrganization The github organization
@@ -77,36 +584,51 @@ public class GitHelper {
   public static void renameFile(String repositoryName, String gitHubOrganization,
       String newFileName, String oldFileName, CredentialsProvider cp) throws FileNotFoundException, Exception {
     try (Git git = getLocalGit(repositoryName, gitHubOrganization, "development")) {
-      File oldFile = new File(getRepositoryPath(repositoryName) + "/" + oldFileName);
-      File newFile = new File(getRepositoryPath(repositoryName) + "/" + newFileName);
-
       L2pLogger.logEvent(Event.SERVICE_MESSAGE,
           "Renaming file " + oldFileName + " to " + newFileName);
 
-      if (newFile.getParentFile() != null) {
-        newFile.getParentFile().mkdirs();
-      }
+      // only the index entry is renamed, as files committed with MultiFileCommit are not written
+      // to the working tree
+      renameIndexEntry(git.getRepository(), newFileName, oldFileName);
+    }
 
-      oldFile.renameTo(newFile);
-      git.add().addFilepattern(newFileName).call();
-      git.rm().addFilepattern(oldFileName).call();
-      // delete empty folder of old file
-      while (oldFile.getParentFile() != null) {
-        File parent = oldFile.getParentFile();
-        if (parent.isDirectory() && parent.list().length == 0) {
-          oldFile = parent;
-          parent.delete();
-        } else {
-          break;
-        }
+  }
+
+  /**
+   * Move the index entry of a file to a new path, keeping its content and mode.
+   * 
+   * @param repository The repository
+   * @param newFileName The new path of the file
+   * @param oldFileName The old path of the file
+   * @throws FileNotFoundException Thrown if the file is not in the index
+   * @throws IOException Thrown if the index could not be read or written
+   */
 
+  private static void renameIndexEntry(Repository repository, String newFileName,
+      String oldFileName) throws FileNotFoundException, IOException {
+    DirCache index = repository.lockDirCache();
+    try {
+      final DirCacheEntry oldEntry = index.getEntry(oldFileName);
+      if (oldEntry == null) {
+        throw new FileNotFoundException(oldFileName + " not found");
       }
+      DirCacheEditor editor = index.editor();
+      editor.add(new PathEdit(newFileName) {
+        @Override
+        public void apply(DirCacheEntry entry) {
+          entry.copyMetaData(oldEntry);
+        }
+      });
+      editor.add(new DeletePath(oldFileName));
+      editor.commit();
+    } finally {
+      index.unlock();
     }
-
   }
 
   /**
-   * Delete a file from a repository. This method does not commit the deletion.
+   * Delete a file from a repository. This method does not commit the deletion, it is staged in the
+   * index for the next commit. The working tree is not kept up to date.
    * 
    * @param repositoryName The name of the repository
    * @param gitHubOrganization The github organization
@@ -119,11 +641,8 @@ public class GitHelper {
   public static void deleteFile(String repositoryName, String gitHubOrganization, String fileName, CredentialsProvider cp)
       throws FileNotFoundException, IOException, Exception {
     try (Git git = getLocalGit(repositoryName, gitHubOrganization, "development")) {
-      File file = new File(getRepositoryPath(repositoryName) + "/" + fileName);
-
       L2pLogger.logEvent(Event.SERVICE_MESSAGE, "Deleting file " + fileName);
 
-      file.delete();
       git.rm().addFilepattern(fileName).call();
 
     }
@@ -131,7 +650,8 @@ public class GitHelper {
 
   /**
    * Merge the development branch of the repository to the given master branch and push it to the
-   * remote repository *
+   * remote repository. The merge is done in the object database only, so neither the working tree
+   * nor the checked out branch are touched.
    * 
    * @param repositoryName The name of the repository
    * @param gitHubOragnization The github organization
@@ -140,62 +660,123 @@ public class GitHelper {
    * @throws Exception If something went wrong during the merging and pushing
    */
 
+  @SuppressWarnings("try")
   public static void mergeIntoMasterBranch(String repositoryName, String gitHubOragnization,
       String masterBranchName, CredentialsProvider cp) throws Exception {
-    Git git = null;
+    try (Git git = GitHelper.getLocalGit(repositoryName, gitHubOragnization)) {
+      try (MetricsRegistry.Timer timer = startTimer("fetch")) {
+        git.fetch().setCredentialsProvider(cp).call();
+      }
 
-    try {
-      git = GitHelper.getLocalGit(repositoryName, gitHubOragnization, masterBranchName);
-      git.fetch().setCredentialsProvider(cp).call();
-
-      MergeCommand mCmd = git.merge();
-      Ref HEAD = git.getRepository().getRef("refs/heads/development");
-      mCmd.include(HEAD);
-      mCmd.setStrategy(MergeStrategy.THEIRS);
-      MergeResult mRes = mCmd.call();
-
-      if (mRes.getMergeStatus().isSuccessful()) {
-        L2pLogger.logEvent(Event.SERVICE_MESSAGE,
-            "Merged development and master branch successfully");
-        L2pLogger.logEvent(Event.SERVICE_MESSAGE, "Now pushing the commits...");
+      try (MetricsRegistry.Timer timer = startTimer("merge")) {
+        mergeBranch(git.getRepository(), "development", masterBranchName);
+      }
+      L2pLogger.logEvent(Event.SERVICE_MESSAGE,
+          "Merged development and master branch successfully");
+      L2pLogger.logEvent(Event.SERVICE_MESSAGE, "Now pushing the commits...");
+      try (MetricsRegistry.Timer timer = startTimer("push")) {
         PushCommand pushCmd = git.push();
         pushCmd.setCredentialsProvider(cp).setForce(true).setPushAll().call();
-        L2pLogger.logEvent(Event.SERVICE_MESSAGE, "... commits pushed");
+      }
+      // the refs of the remote changed
+      remoteRepositoryCache.invalidate(getRemoteUrl(repositoryName, gitHubOragnization));
+      L2pLogger.logEvent(Event.SERVICE_MESSAGE, "... commits pushed");
+    }
+  }
+
+  /**
+   * Merge a branch into another one without a checkout. Like a merge with the
+   * {@link org.eclipse.jgit.merge.MergeStrategy#THEIRS} strategy, the merged tree is always the
+   * tree of the merged branch. The target branch is fast forwarded if possible.
+   * 
+   * @param repository The repository
+   * @param branchName The name of the branch to merge
+   * @param targetBranchName The name of the branch to merge into
+   * @throws Exception Thrown if the target branch could not be updated
+   */
+
+  private static void mergeBranch(Repository repository, String branchName,
+      String targetBranchName) throws Exception {
+    Ref branch = repository.getRef(Constants.R_HEADS + branchName);
+    if (branch == null) {
+      // nothing was committed to the branch yet
+      return;
+    }
+    Ref target = repository.getRef(Constants.R_HEADS + targetBranchName);
+
+    try (RevWalk revWalk = new RevWalk(repository)) {
+      RevCommit branchCommit = revWalk.parseCommit(branch.getObjectId());
+      RevCommit targetCommit = target != null ? revWalk.parseCommit(target.getObjectId()) : null;
+      ObjectId mergedId;
+
+      if (targetCommit == null || revWalk.isMergedInto(targetCommit, branchCommit)) {
+        mergedId = branchCommit;
+      } else if (revWalk.isMergedInto(branchCommit, targetCommit)) {
+        // already up to date
+        return;
       } else {
-        logger.warning("Error during merging of development and master branch");
-        throw new Exception("Unable to merge master and development branch");
+        PersonIdent person = new PersonIdent(repository);
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(branchCommit.getTree());
+        commit.setParentIds(targetCommit, branchCommit);
+        commit.setAuthor(person);
+        commit.setCommitter(person);
+        commit.setMessage("Merge branch '" + branchName + "' into " + targetBranchName);
+        try (ObjectInserter inserter = repository.newObjectInserter()) {
+          mergedId = inserter.insert(commit);
+          inserter.flush();
+        }
       }
-    } finally {
-      if (git != null) {// switch back to development branch
-        GitHelper.switchBranch(git, "development");
-        git.close();
+
+      RefUpdate refUpdate = repository.updateRef(Constants.R_HEADS + targetBranchName);
+      refUpdate.setNewObjectId(mergedId);
+      refUpdate.setExpectedOldObjectId(targetCommit != null ? targetCommit : ObjectId.zeroId());
+      refUpdate.setRefLogMessage("merge " + branchName, false);
+      switch (refUpdate.update()) {
+        case NEW:
+        case FAST_FORWARD:
+          break;
+        default:
+          logger.warning("Error during merging of development and master branch");
+          throw new Exception("Unable to merge master and development branch");
       }
     }
   }
 
   /**
    * Checks whether a remote repository of the given name in the given github organization exists.
-   * Uses the ls remote git command to determine if the repository exists.
+   * Uses the ls remote git command to determine if the repository exists. The result is cached,
+   * missing repositories for a shorter time than existing ones.
    * 
    * @param url The url of the repository
    * 
    * @return True, if the repository exists, otherwise false
+   * @throws IOException Thrown if the git server could not be asked, e.g. because it is not
+   *         reachable
    */
 
-  public static boolean existsRemoteRepository(String url) {
+  public static boolean existsRemoteRepository(String url) throws IOException {
+    return remoteRepositoryCache.exists(url);
+  }
+
+  /**
+   * List the branches of a remote repository with the ls remote git command
+   * 
+   * @param url The url of the repository
+   * @return The refs of the branches
+   * @throws Exception Thrown if the repository does not exist or could not be reached
+   */
+
+  @SuppressWarnings("try")
+  private static Collection<Ref> listRemoteRefs(String url) throws Exception {
     LsRemoteCommand lsCmd = new LsRemoteCommand(null);
     lsCmd.setRemote(url);
     lsCmd.setHeads(true);
     // This is needed for gitlab
     lsCmd.setCredentialsProvider(cp);
-    boolean exists = true;
-    try {
-      lsCmd.call();
-    } catch (Exception e) {
-      // ignore the exception, as this is the way we determine if a remote repository exists
-      exists = false;
+    try (MetricsRegistry.Timer timer = startTimer("ls_remote")) {
+      return lsCmd.call();
     }
-    return exists;
   }
 
   /**
@@ -229,24 +810,93 @@ public class GitHelper {
   public static Repository getLocalRepository(String repositoryName, String gitHubOrganization)
       throws FileNotFoundException, IOException, InvalidRemoteException, TransportException,
       GitAPIException {
-    File localPath;
-    Repository repository = null;
-    localPath = getRepositoryPath(repositoryName);
-    File repoFile = new File(localPath + "/.git");
+    File repoFile = new File(getRepositoryPath(repositoryName) + "/.git");
 
     if (!repoFile.exists()) {
-      repository = createLocalRepository(repositoryName, gitHubOrganization);
+      cloneLocalRepository(repositoryName, gitHubOrganization);
+    }
+    return openLocalRepository(repositoryName);
+  }
 
-    } else {
+  /**
+   * Open the existing local clone of a repository
+   * 
+   * @param repositoryName The name of the repository
+   * @return The local repository
+   * @throws FileNotFoundException Thrown if the repository is not cloned
+   * @throws IOException Thrown if the repository could not be opened
+   */
+
+  @SuppressWarnings("try")
+  private static Repository openLocalRepository(String repositoryName)
+      throws FileNotFoundException, IOException {
+    File repoFile = new File(getRepositoryPath(repositoryName) + "/.git");
+    if (!repoFile.exists()) {
+      throw new FileNotFoundException("Local repository " + repositoryName + " not found");
+    }
+    try (MetricsRegistry.Timer timer = startTimer("open")) {
       FileRepositoryBuilder builder = new FileRepositoryBuilder();
-      repository = builder.setGitDir(repoFile).readEnvironment().findGitDir().build();
+      return builder.setGitDir(repoFile).readEnvironment().findGitDir().build();
+    }
+  }
+
+  /**
+   * Clone a repository unless a clone of it is already running, in which case the running clone
+   * is awaited instead. This way concurrent requests for a repository that is not cloned yet
+   * neither clone it several times nor clone into the same directory.
+   * 
+   * @param repositoryName The name of the repository
+   * @param gitHubOrganization The github organization of the repository
+   * @throws FileNotFoundException Thrown if the remote repository does not exists
+   * @throws IOException Thrown if the clone failed or did not finish in time
+   * @throws GitAPIException Thrown if the clone failed
+   */
+
+  private static void cloneLocalRepository(String repositoryName, String gitHubOrganization)
+      throws FileNotFoundException, IOException, GitAPIException {
+    CompletableFuture<Void> clone = new CompletableFuture<Void>();
+    CompletableFuture<Void> runningClone = runningClones.putIfAbsent(repositoryName, clone);
+
+    if (runningClone != null) {
+      try {
+        runningClone.get(cloneTimeout, TimeUnit.SECONDS);
+      } catch (TimeoutException e) {
+        throw new IOException("Timed out waiting for the clone of " + repositoryName);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for the clone of " + repositoryName);
+      } catch (ExecutionException e) {
+        // fail like the clone itself
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        } else if (cause instanceof GitAPIException) {
+          throw (GitAPIException) cause;
+        }
+        throw new IOException(cause);
+      }
+      return;
+    }
+
+    try {
+      // the clone may have finished right before this one was registered
+      if (!new File(getRepositoryPath(repositoryName), ".git").exists()) {
+        createLocalRepository(repositoryName, gitHubOrganization);
+      }
+      clone.complete(null);
+    } catch (IOException | GitAPIException | RuntimeException e) {
+      clone.completeExceptionally(e);
+      throw e;
+    } finally {
+      runningClones.remove(repositoryName, clone);
     }
-    return repository;
   }
 
   /**
    * Get a {@link org.eclipse.jgit.api.Git} for a repository with the given name and github
-   * organization
+   * organization. The repository is taken from the repository pool and given back to it when the
+   * returned git is closed. The access is recorded, so that the repository is fetched in the
+   * background while it is in use.
    * 
    * @param repositoryName The name of the repository
    * @param gitHubOrganization The github organization of the repository
@@ -254,11 +904,52 @@ public class GitHelper {
    * @throws Exception Thrown if an error occurred while getting the local repository
    */
 
-  public static Git getLocalGit(String repositoryName, String gitHubOrganization) throws Exception {
-    Git git = new AutoCloseGit(getLocalRepository(repositoryName, gitHubOrganization));
+  public static Git getLocalGit(String repositoryName, String gitHubOrganization)
+      throws Exception {
+    Git git = getPooledGit(repositoryName, gitHubOrganization);
+    fetchScheduler.recordAccess(repositoryName);
+    diskQuotaManager.recordAccess(repositoryName);
     return git;
   }
 
+  /**
+   * Get a {@link org.eclipse.jgit.api.Git} for a repository from the repository pool without
+   * recording an access
+   * 
+   * @param repositoryName The name of the repository
+   * @param gitHubOrganization The github organization of the repository
+   * @return A {@link org.eclipse.jgit.api.Git}
+   * @throws Exception Thrown if an error occurred while getting the local repository
+   */
+
+  private static Git getPooledGit(final String repositoryName, final String gitHubOrganization)
+      throws Exception {
+    RepositoryPool.Entry entry = repositoryPool.acquire(repositoryName,
+        () -> getLocalRepository(repositoryName, gitHubOrganization));
+    Git git = new PooledGit(repositoryPool, entry);
+    return git;
+  }
+
+  /**
+   * Get a {@link org.eclipse.jgit.api.Git} for an existing local clone from the repository pool
+   * without recording an access. A repository that is not cloned, e.g. because it was deleted or
+   * evicted, is never cloned, so that background work cannot clone repositories again.
+   * 
+   * @param repositoryName The name of the repository
+   * @return A {@link org.eclipse.jgit.api.Git}, null if the repository is not cloned
+   * @throws Exception Thrown if an error occurred while opening the local repository
+   */
+
+  private static Git getClonedGit(final String repositoryName) throws Exception {
+    RepositoryPool.Entry entry;
+    try {
+      entry = repositoryPool.acquire(repositoryName, () -> openLocalRepository(repositoryName));
+    } catch (FileNotFoundException e) {
+      return null;
+    }
+    return new PooledGit(repositoryPool, entry);
+  }
+
   /**
    * Get a {@link org.eclipse.jgit.api.Git} for a repository with the given name and github
    * organization checked out to the given branch name.
@@ -311,11 +1002,12 @@ public class GitHelper {
    * @return The tree walk of the repository or null if there was an error
    */
 
+  @SuppressWarnings("try")
   public static TreeWalk getRepositoryTreeWalk(Repository repository, boolean recursive) {
 
     RevWalk revWalk = null;
     TreeWalk treeWalk = null;
-    try {
+    try (MetricsRegistry.Timer timer = startTimer("tree_walk")) {
       ObjectId lastCommitId = repository.resolve(Constants.HEAD);
       treeWalk = new TreeWalk(repository);
       revWalk = new RevWalk(repository);
@@ -326,57 +1018,238 @@ public class GitHelper {
     } catch (Exception e) {
       logger.printStackTrace(e);
     } finally {
-      repository.close();
-      revWalk.close();
+      // the repository itself is pooled and must stay open
+      if (revWalk != null) {
+        revWalk.close();
+      }
     }
 
     return treeWalk;
   }
 
   /**
-   * Get the content of a file in a repository
+   * Resolve the tree of the current HEAD commit of a repository
    * 
-   * @param repository The repository of the file
-   * @param fileName The name of the file
-   * @return The content of the file.
-   * @throws FileNotFoundException Thrown if the file was not found
-   * @throws Exception Thrown if anything else went wrong
+   * @param repository The repository
+   * @return The tree of the HEAD commit
+   * @throws IOException Thrown if HEAD could not be resolved or parsed
    */
 
-  public static String getFileContent(Repository repository, String fileName) throws Exception {
+  public static RevTree getHeadTree(Repository repository) throws IOException {
+    ObjectId lastCommitId = repository.resolve(Constants.HEAD);
+    if (lastCommitId == null) {
+      throw new IOException("HEAD of " + repository.getDirectory() + " could not be resolved");
+    }
+    try (RevWalk revWalk = new RevWalk(repository)) {
+      return revWalk.parseCommit(lastCommitId).getTree();
+    }
+  }
 
-    String content = "";
+  /**
+   * Resolve the tree of the last commit of a branch directly from the object database, without
+   * checking the branch out. If the branch does not exist yet, the tree of HEAD is used, as the
+   * branch will be created from HEAD by the first write.
+   * 
+   * @param repository The repository
+   * @param branchName The name of the branch
+   * @return The tree of the last commit of the branch
+   * @throws IOException Thrown if the branch could not be resolved or parsed
+   */
 
-    try (TreeWalk treeWalk = getRepositoryTreeWalk(repository)) {
+  public static RevTree getBranchTree(Repository repository, String branchName)
+      throws IOException {
+    ObjectId lastCommitId = repository.resolve(Constants.R_HEADS + branchName);
+    if (lastCommitId == null) {
+      return getHeadTree(repository);
+    }
+    try (RevWalk revWalk = new RevWalk(repository)) {
+      return revWalk.parseCommit(lastCommitId).getTree();
+    }
+  }
 
-      treeWalk.setFilter(PathFilter.create(fileName));
-      boolean fileFound = false;
+  /**
+   * Parse a tree by its id, e.g. a tree of an earlier commit
+   *
+   * @param repository The repository
+   * @param treeId The id of the tree
+   * @return The tree
+   * @throws IOException Thrown if the tree is not in the repository (any more) or could not be
+   *         parsed
+   */
+
+  public static RevTree getTree(Repository repository, ObjectId treeId) throws IOException {
+    try (RevWalk revWalk = new RevWalk(repository)) {
+      return revWalk.parseTree(treeId);
+    }
+  }
+
+  /**
+   * Get the blob ids of several files of a tree within a single pass over the tree. Paths that are
+   * not found in the tree are missing in the returned map.
+   * 
+   * @param repository The repository of the tree
+   * @param tree The tree to search in
+   * @param fileNames The full paths of the files
+   * @return A map from the paths of the found files to their blob ids
+   * @throws IOException Thrown if the tree could not be read
+   */
+
+  @SuppressWarnings("try")
+  public static Map<String, ObjectId> getBlobIds(Repository repository, RevTree tree,
+      Collection<String> fileNames) throws IOException {
+    Map<String, ObjectId> blobIds = new HashMap<String, ObjectId>();
+    if (fileNames.isEmpty()) {
+      return blobIds;
+    }
 
+    try (MetricsRegistry.Timer timer = startTimer("tree_walk");
+        TreeWalk treeWalk = new TreeWalk(repository)) {
+      treeWalk.addTree(tree);
+      treeWalk.setRecursive(true);
+      // the filter group only enters subtrees containing at least one of the wanted paths
+      treeWalk.setFilter(PathFilterGroup.createFromStrings(fileNames));
       while (treeWalk.next()) {
+        blobIds.put(treeWalk.getPathString(), treeWalk.getObjectId(0));
+      }
+    }
 
-        if (!fileFound && treeWalk.isSubtree()) {
-          treeWalk.enterSubtree();
-        }
-        if (treeWalk.getPathString().equals(fileName)) {
-          fileFound = true;
-          break;
+    return blobIds;
+  }
+
+  /**
+   * Read the content of a blob
+   * 
+   * @param repository The repository of the blob
+   * @param blobId The id of the blob
+   * @return The content of the blob
+   * @throws IOException Thrown if the blob could not be read
+   */
+
+  @SuppressWarnings("try")
+  public static String getBlobContent(Repository repository, ObjectId blobId) throws IOException {
+    try (MetricsRegistry.Timer timer = startTimer("blob_read");
+        ObjectReader reader = repository.newObjectReader()) {
+      return new String(reader.open(blobId, Constants.OBJ_BLOB).getBytes(), "UTF-8");
+    }
+  }
+
+  /**
+   * Read the raw bytes of a blob
+   * 
+   * @param repository The repository of the blob
+   * @param blobId The id of the blob
+   * @return The content of the blob
+   * @throws IOException Thrown if the blob could not be read
+   */
+
+  @SuppressWarnings("try")
+  public static byte[] getBlobBytes(Repository repository, ObjectId blobId) throws IOException {
+    try (MetricsRegistry.Timer timer = startTimer("blob_read");
+        ObjectReader reader = repository.newObjectReader()) {
+      return reader.open(blobId, Constants.OBJ_BLOB).getBytes();
+    }
+  }
+
+  /**
+   * Append the content of a blob encoded in base64 to a string builder. The blob is streamed from
+   * the object database and encoded chunk by chunk, so neither the raw content nor the encoded
+   * content are held in memory as a whole.
+   * 
+   * @param repository The repository of the blob
+   * @param blobId The id of the blob
+   * @param target The string builder to append the encoded content to
+   * @throws IOException Thrown if the blob could not be read
+   */
+
+  @SuppressWarnings("try")
+  public static void appendBase64Content(Repository repository, ObjectId blobId,
+      final StringBuilder target) throws IOException {
+    try (MetricsRegistry.Timer timer = startTimer("blob_read");
+        ObjectReader reader = repository.newObjectReader()) {
+      ObjectLoader loader = reader.open(blobId, Constants.OBJ_BLOB);
+      target.ensureCapacity(target.length() + (int) ((loader.getSize() + 2) / 3 * 4));
+
+      // base64 is plain ascii, so every encoded byte is one char
+      OutputStream targetStream = new OutputStream() {
+        @Override
+        public void write(int b) {
+          target.append((char) b);
         }
 
+        @Override
+        public void write(byte[] b, int off, int len) {
+          for (int i = off; i < off + len; i++) {
+            target.append((char) b[i]);
+          }
+        }
+      };
+
+      try (InputStream in = loader.openStream();
+          OutputStream out = Base64.getEncoder().wrap(targetStream)) {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          out.write(buffer, 0, read);
+        }
       }
-      if (fileFound) {
-        ObjectReader reader = treeWalk.getObjectReader();
-        ObjectId objectId = treeWalk.getObjectId(0);
-        ObjectLoader loader = reader.open(objectId);
-        content = new String(loader.getBytes(), "UTF-8");
-      } else {
-        throw new FileNotFoundException(fileName + " not found");
-      }
-
     }
+  }
 
-    return content;
+  /**
+   * Get the content of a file in a repository
+   * 
+   * @param repository The repository of the file
+   * @param fileName The name of the file
+   * @return The content of the file.
+   * @throws FileNotFoundException Thrown if the file was not found
+   * @throws Exception Thrown if anything else went wrong
+   */
+
+  public static String getFileContent(Repository repository, String fileName) throws Exception {
+    return getFileContent(repository, getHeadTree(repository), fileName);
+  }
 
+  /**
+   * Get the content of a file in a given tree of a repository
+   * 
+   * @param repository The repository of the file
+   * @param tree The tree containing the file
+   * @param fileName The full path of the file
+   * @return The content of the file.
+   * @throws FileNotFoundException Thrown if the file was not found
+   * @throws IOException Thrown if the file could not be read
+   */
 
+  public static String getFileContent(Repository repository, RevTree tree, String fileName)
+      throws FileNotFoundException, IOException {
+    ObjectId blobId = getBlobId(repository, tree, fileName);
+    if (blobId == null) {
+      throw new FileNotFoundException(fileName + " not found");
+    }
+    return getBlobContent(repository, blobId);
+  }
+
+  /**
+   * Get the blob id of a file in a given tree by looking up its path directly, i.e. only the trees
+   * along the path are read.
+   * 
+   * @param repository The repository of the file
+   * @param tree The tree containing the file
+   * @param fileName The full path of the file
+   * @return The blob id of the file or null if there is no such file
+   * @throws IOException Thrown if the tree could not be read
+   */
+
+  @SuppressWarnings("try")
+  public static ObjectId getBlobId(Repository repository, RevTree tree, String fileName)
+      throws IOException {
+    try (MetricsRegistry.Timer timer = startTimer("tree_walk");
+        TreeWalk treeWalk = TreeWalk.forPath(repository, fileName, tree)) {
+      if (treeWalk == null || treeWalk.isSubtree()) {
+        return null;
+      }
+      return treeWalk.getObjectId(0);
+    }
   }
 
   /**
@@ -393,53 +1266,98 @@ public class GitHelper {
    * @throws GitAPIException Thrown if something went wrong during the branch creation or checkout
    */
 
+  @SuppressWarnings("try")
   public static void switchBranch(Git git, String branchName)
       throws IOException, RefAlreadyExistsException, RefNotFoundException, InvalidRefNameException,
       CheckoutConflictException, GitAPIException {
     if (git.getRepository().getBranch().equals(branchName)) {
       return;
     }
-    boolean branchExists = git.getRepository().getRef(branchName) != null;
-    if (!branchExists) {
-      git.branchCreate().setName(branchName).call();
+    try (MetricsRegistry.Timer timer = startTimer("checkout")) {
+      boolean branchExists = git.getRepository().getRef(branchName) != null;
+      if (!branchExists) {
+        git.branchCreate().setName(branchName).call();
+      }
+      git.checkout().setName(branchName).call();
     }
-    git.checkout().setName(branchName).call();
   }
 
   /**
-   * Creates a new local repository with the given name within the given github organization.
+   * Creates a new local repository with the given name within the given github organization. The
+   * repository is cloned into a temporary directory next to its final location and moved there
+   * once the clone is complete, so that a partial clone is never mistaken for a repository. A
+   * failed clone is removed again.
    * 
    * @param repositoryName The name of the repository
    * @param gitHubOrganization The github organization of the repository
-   * @return The new created local repository
    * @throws InvalidRemoteException Thrown when an invalid remote is used internally
    * @throws TransportException Thrown if a protocol error has occurred
    * @throws GitAPIException Thrown by any git API classes
    * @throws FileNotFoundException Thrown if the remote repository does not exists
+   * @throws IOException Thrown if the clone could not be moved to its location
    */
 
-  private static Repository createLocalRepository(String repositoryName, String gitHubOrganization)
-      throws InvalidRemoteException, TransportException, GitAPIException, FileNotFoundException {
+  @SuppressWarnings("try")
+  private static void createLocalRepository(String repositoryName, String gitHubOrganization)
+      throws InvalidRemoteException, TransportException, GitAPIException, FileNotFoundException,
+      IOException {
     L2pLogger.logEvent(Event.SERVICE_MESSAGE, "created new local repository " + repositoryName);
     
-    String repositoryAddress =
-        baseURL + gitHubOrganization + "/" + repositoryName + ".git";
-    
-    Repository repository = null;
+    String repositoryAddress = getRemoteUrl(repositoryName, gitHubOrganization);
 
     boolean isFrontend = repositoryName.startsWith("frontendComponent-");
     String masterBranchName = isFrontend ? "gh-pages" : "master";
 
-    if (existsRemoteRepository(repositoryAddress)) {
-      try (Git result = Git.cloneRepository().setURI(repositoryAddress).setCredentialsProvider(cp)
-          .setDirectory(getRepositoryPath(repositoryName)).setBranch(masterBranchName).call()) {
-        repository = result.getRepository();
-      }
-    } else {
+    if (!existsRemoteRepository(repositoryAddress)) {
       throw new FileNotFoundException("Remote repository: " + repositoryAddress + " not found!");
     }
 
-    return repository;
+    File localPath = getRepositoryPath(repositoryName).getAbsoluteFile();
+    File clonePath = new File(localPath.getParentFile(),
+        "." + localPath.getName() + ".clone-" + UUID.randomUUID());
+    final long deadline = System.currentTimeMillis() + cloneTimeout * 1000L;
+    CloneCommand cloneCommand = Git.cloneRepository().setURI(repositoryAddress)
+        .setCredentialsProvider(cp).setDirectory(clonePath).setBranch(masterBranchName)
+        .setTimeout(cloneTimeout).setProgressMonitor(new EmptyProgressMonitor() {
+          // the network timeout only limits single reads, this limits the whole clone
+          @Override
+          public boolean isCancelled() {
+            return System.currentTimeMillis() > deadline;
+          }
+        });
+    if (cloneMode == CloneMode.SINGLE_BRANCH) {
+      cloneCommand.setBranchesToClone(
+          Collections.singletonList(Constants.R_HEADS + masterBranchName));
+    }
+
+    boolean cloned = false;
+    try {
+      try (MetricsRegistry.Timer timer = startTimer("clone"); Git result = cloneCommand.call()) {
+        if (cloneMode == CloneMode.SINGLE_BRANCH) {
+          // later fetches must not fetch the other branches either
+          StoredConfig config = result.getRepository().getConfig();
+          config.setString("remote", "origin", "fetch", "+" + Constants.R_HEADS + masterBranchName
+              + ":" + Constants.R_REMOTES + "origin/" + masterBranchName);
+          config.save();
+        }
+        // the pool opens the repository from its final location
+      }
+      if (localPath.isDirectory() && localPath.list().length == 0) {
+        Files.delete(localPath.toPath());
+      }
+      Files.move(clonePath.toPath(), localPath.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      cloned = true;
+    } catch (GitAPIException | JGitInternalException e) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new IOException("The clone of " + repositoryName + " did not finish within "
+            + cloneTimeout + " seconds", e);
+      }
+      throw e;
+    } finally {
+      if (!cloned) {
+        FileUtils.delete(clonePath, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+      }
+    }
   }
 
   public static boolean indexIsLocked(String repositoryName) {
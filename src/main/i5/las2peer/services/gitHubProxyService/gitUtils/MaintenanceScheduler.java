@@ -0,0 +1,215 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import i5.las2peer.logging.L2pLogger;
+import i5.las2peer.services.gitHubProxyService.GitHubProxyService;
+
+/**
+ * Keeps the object databases of the local clones compact. Every write leaves loose objects behind
+ * and every fetch may add a pack file, which slows down object lookups over time. Repositories
+ * written since the last check are inspected periodically in the background and garbage collected
+ * if they have more loose objects or pack files than allowed.
+ */
+
+public class MaintenanceScheduler {
+
+  private static final L2pLogger logger = L2pLogger.getInstance(GitHubProxyService.class.getName());
+
+  /**
+   * Access to the object databases of the local clones
+   */
+
+  public interface Maintenance {
+    /** Count the loose objects and pack files of a repository */
+    Statistics getStatistics(String repositoryName) throws Exception;
+
+    /** Pack the loose objects of a repository and combine its pack files */
+    void collectGarbage(String repositoryName) throws Exception;
+  }
+
+  /**
+   * The size of the object database of a repository
+   */
+
+  public static class Statistics {
+    private final long looseObjects;
+    private final long packFiles;
+
+    public Statistics(long looseObjects, long packFiles) {
+      this.looseObjects = looseObjects;
+      this.packFiles = packFiles;
+    }
+
+    public long getLooseObjects() {
+      return looseObjects;
+    }
+
+    public long getPackFiles() {
+      return packFiles;
+    }
+  }
+
+  private final Maintenance maintenance;
+  private final Set<String> written = ConcurrentHashMap.newKeySet();
+  private final ConcurrentHashMap<String, Statistics> statistics =
+      new ConcurrentHashMap<String, Statistics>();
+  private final AtomicLong runs = new AtomicLong();
+  private volatile long looseObjectThreshold;
+  private volatile long packFileThreshold;
+  private ScheduledExecutorService executor;
+
+  /**
+   * Create a new maintenance scheduler. No repository is maintained before it is started.
+   *
+   * @param maintenance Access to the object databases
+   * @param looseObjectThreshold The number of loose objects above which a repository is collected
+   * @param packFileThreshold The number of pack files above which a repository is collected
+   */
+
+  public MaintenanceScheduler(Maintenance maintenance, long looseObjectThreshold,
+      long packFileThreshold) {
+    this.maintenance = maintenance;
+    configure(looseObjectThreshold, packFileThreshold);
+  }
+
+  /**
+   * Change the thresholds of the scheduler
+   *
+   * @param looseObjectThreshold The number of loose objects above which a repository is collected
+   * @param packFileThreshold The number of pack files above which a repository is collected
+   */
+
+  public void configure(long looseObjectThreshold, long packFileThreshold) {
+    this.looseObjectThreshold = looseObjectThreshold;
+    this.packFileThreshold = packFileThreshold;
+  }
+
+  /**
+   * Check the written repositories periodically in the background. A previously started schedule
+   * is replaced.
+   *
+   * @param interval The interval in milliseconds in which the repositories are checked, 0 to stop
+   *        checking
+   */
+
+  public synchronized void start(long interval) {
+    shutdown();
+    if (interval <= 0) {
+      return;
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "maintenance-scheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(() -> runMaintenance(), interval, interval,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop checking the written repositories in the background
+   */
+
+  public synchronized void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /**
+   * Record a write to a repository, so that it is checked the next time
+   *
+   * @param repositoryName The name of the repository
+   */
+
+  public void recordWrite(String repositoryName) {
+    written.add(repositoryName);
+  }
+
+  /**
+   * Forget a repository, e.g. because it was deleted
+   *
+   * @param repositoryName The name of the repository
+   */
+
+  public void remove(String repositoryName) {
+    written.remove(repositoryName);
+    statistics.remove(repositoryName);
+  }
+
+  /**
+   * Get the number of loose objects of all checked repositories, as of their last check
+   *
+   * @return The number of loose objects
+   */
+
+  public long getLooseObjects() {
+    return statistics.values().stream().mapToLong(Statistics::getLooseObjects).sum();
+  }
+
+  /**
+   * Get the number of pack files of all checked repositories, as of their last check
+   *
+   * @return The number of pack files
+   */
+
+  public long getPackFiles() {
+    return statistics.values().stream().mapToLong(Statistics::getPackFiles).sum();
+  }
+
+  /**
+   * Get the number of garbage collections run so far
+   *
+   * @return The number of garbage collections
+   */
+
+  public long getRuns() {
+    return runs.get();
+  }
+
+  /**
+   * Check all repositories written since the last check and collect the garbage of those exceeding
+   * a threshold
+   *
+   * @return The names of the collected repositories
+   */
+
+  synchronized List<String> runMaintenance() {
+    List<String> collected = new ArrayList<String>();
+    List<String> due = new ArrayList<String>(written);
+    written.removeAll(due);
+
+    for (String repositoryName : due) {
+      try {
+        Statistics before = maintenance.getStatistics(repositoryName);
+        statistics.put(repositoryName, before);
+        if (before.getLooseObjects() <= looseObjectThreshold
+            && before.getPackFiles() <= packFileThreshold) {
+          continue;
+        }
+
+        maintenance.collectGarbage(repositoryName);
+        runs.incrementAndGet();
+        collected.add(repositoryName);
+        Statistics after = maintenance.getStatistics(repositoryName);
+        statistics.put(repositoryName, after);
+        logger.info("Collected garbage of " + repositoryName + ": " + before.getLooseObjects()
+            + " loose objects and " + before.getPackFiles() + " pack files before, "
+            + after.getLooseObjects() + " and " + after.getPackFiles() + " after");
+      } catch (Exception e) {
+        logger.warning("Maintenance of " + repositoryName + " failed: " + e.getMessage());
+      }
+    }
+    return collected;
+  }
+
+}
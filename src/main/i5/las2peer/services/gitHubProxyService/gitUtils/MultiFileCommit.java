@@ -0,0 +1,152 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEditor;
+import org.eclipse.jgit.dircache.DirCacheEditor.PathEdit;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+
+import i5.las2peer.services.gitHubProxyService.metrics.MetricsRegistry;
+
+/**
+ * Collects the contents of several files and commits them at once. The contents and the commit are
+ * inserted into the object database directly and the index is updated in a single edit, so
+ * neither the files have to be written to the working tree nor the working tree has to be
+ * rescanned.
+ */
+
+public class MultiFileCommit {
+
+  private final Map<String, byte[]> files = new LinkedHashMap<String, byte[]>();
+
+  /**
+   * Add a file to the commit. A file that was already added is replaced.
+   *
+   * @param filePath The path of the file, relative to the working directory
+   * @param content The new content of the file
+   * @return This commit
+   */
+
+  public MultiFileCommit addFile(String filePath, byte[] content) {
+    files.put(filePath, content);
+    return this;
+  }
+
+  /**
+   * Check if files were added to this commit
+   *
+   * @return True, if no file was added yet
+   */
+
+  public boolean isEmpty() {
+    return files.isEmpty();
+  }
+
+  /**
+   * Commit the added files to the checked out branch. The commit is written to the object
+   * database directly: its tree is built from the index, i.e. the tree of the parent commit plus
+   * the changed paths and changes staged by renaming or deleting files, and the branch is moved
+   * to it with a compare-and-swap ref update. Neither the working tree nor the index have to be
+   * rescanned.
+   *
+   * @param git The git of the repository to commit to
+   * @param authorName The name of the author
+   * @param authorMail The mail address of the author
+   * @param message The commit message
+   * @return The id of the new commit
+   * @throws IOException Thrown if the commit could not be written or the branch was moved
+   *         concurrently
+   */
+
+  public ObjectId commit(Git git, String authorName, String authorMail, String message)
+      throws IOException {
+    Repository repository = git.getRepository();
+    return commit(repository, repository.resolve(repository.getFullBranch()), authorName,
+        authorMail, message);
+  }
+
+  /**
+   * Commit the added files to the checked out branch on top of the given parent. The branch is
+   * only moved if it still points to the parent, and the index is only written after the branch
+   * was moved.
+   *
+   * @param repository The repository to commit to
+   * @param parentId The commit the branch is expected to point to, null for the first commit
+   * @param authorName The name of the author
+   * @param authorMail The mail address of the author
+   * @param message The commit message
+   * @return The id of the new commit
+   * @throws IOException Thrown if the commit could not be written or the branch was moved
+   *         concurrently
+   */
+
+  @SuppressWarnings("try")
+  ObjectId commit(Repository repository, ObjectId parentId, String authorName, String authorMail,
+      String message) throws IOException {
+    String branchName = repository.getFullBranch();
+
+    try (MetricsRegistry.Timer timer = GitHelper.startTimer("commit");
+        ObjectInserter inserter = repository.newObjectInserter()) {
+      DirCache index = repository.lockDirCache();
+      try {
+        DirCacheEditor editor = index.editor();
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+          final byte[] content = file.getValue();
+          final ObjectId blobId = inserter.insert(Constants.OBJ_BLOB, content);
+          editor.add(new PathEdit(file.getKey()) {
+            @Override
+            public void apply(DirCacheEntry entry) {
+              // keep the mode of existing files
+              if (entry.getRawMode() == 0) {
+                entry.setFileMode(FileMode.REGULAR_FILE);
+              }
+              entry.setObjectId(blobId);
+              entry.setLength(content.length);
+            }
+          });
+        }
+        editor.finish();
+
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(index.writeTree(inserter));
+        if (parentId != null) {
+          commit.setParentId(parentId);
+        }
+        commit.setAuthor(new PersonIdent(authorName, authorMail));
+        commit.setCommitter(new PersonIdent(repository));
+        commit.setMessage(message);
+        ObjectId commitId = inserter.insert(commit);
+        inserter.flush();
+
+        RefUpdate refUpdate = repository.updateRef(branchName);
+        refUpdate.setNewObjectId(commitId);
+        refUpdate.setExpectedOldObjectId(parentId != null ? parentId : ObjectId.zeroId());
+        refUpdate.setRefLogMessage("commit: " + message, false);
+        RefUpdate.Result result = refUpdate.update();
+        if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FAST_FORWARD) {
+          throw new IOException("Could not update " + branchName + ": " + result);
+        }
+
+        // the index now matches the new commit
+        index.write();
+        index.commit();
+        return commitId;
+      } finally {
+        index.unlock();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,31 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import org.eclipse.jgit.api.Git;
+
+/**
+ * A special git class that gives its repository back to the {@link RepositoryPool} when it is
+ * closed, instead of closing the repository.
+ */
+
+public class PooledGit extends Git {
+
+  private final RepositoryPool pool;
+  private final RepositoryPool.Entry entry;
+  private boolean released = false;
+
+  PooledGit(RepositoryPool pool, RepositoryPool.Entry entry) {
+    super(entry.getRepository());
+    this.pool = pool;
+    this.entry = entry;
+  }
+
+  @Override
+  public void close() {
+    // the repository stays open in the pool, only our reference is released
+    if (!released) {
+      released = true;
+      pool.release(entry);
+    }
+  }
+
+}
@@ -0,0 +1,233 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import i5.las2peer.logging.L2pLogger;
+import i5.las2peer.services.gitHubProxyService.GitHubProxyService;
+
+/**
+ * Runs pushes of repositories in the background. Push requests are accepted immediately and
+ * identified by a push id. All requests of a repository that arrive while its push has not started
+ * yet are coalesced into that single push. Failed pushes are retried with an exponential backoff.
+ * Every request has its own attempt budget, so that a request joining a retry is not failed by the
+ * attempts made before it arrived.
+ */
+
+public class PushScheduler {
+
+  private static final L2pLogger logger = L2pLogger.getInstance(GitHubProxyService.class.getName());
+
+  // number of finished push requests whose status is kept
+  private static final int MAX_KEPT_REQUESTS = 1000;
+
+  /**
+   * The action performing the actual push of a repository
+   */
+
+  public interface PushAction {
+    void push(String repositoryName) throws Exception;
+  }
+
+  /**
+   * The state of a push
+   */
+
+  public enum State {
+    PENDING, RUNNING, DONE, FAILED
+  }
+
+  /**
+   * A push of a repository, possibly shared by several push requests
+   */
+
+  public static class Push {
+    private final String repositoryName;
+    private final List<String> pushIds = new ArrayList<String>();
+    // the number of attempts made on behalf of each request
+    private final Map<String, Integer> attempts = new ConcurrentHashMap<String, Integer>();
+    private volatile State state = State.PENDING;
+    private volatile String error;
+
+    private Push(String repositoryName) {
+      this.repositoryName = repositoryName;
+    }
+
+    public String getRepositoryName() {
+      return repositoryName;
+    }
+
+    public State getState() {
+      return state;
+    }
+
+    /**
+     * Get the number of attempts made on behalf of a push request
+     *
+     * @param pushId The push id of the request
+     * @return The number of attempts, including attempts of earlier pushes of the request
+     */
+
+    public int getAttempts(String pushId) {
+      Integer count = attempts.get(pushId);
+      return count != null ? count : 0;
+    }
+
+    public String getError() {
+      return error;
+    }
+  }
+
+  private final PushAction action;
+  private final ScheduledExecutorService executor;
+  private final int maxAttempts;
+  private final long retryDelay;
+
+  // the push of each repository that has not been started yet
+  private final Map<String, Push> pendingPushes = new HashMap<String, Push>();
+  private final LinkedHashMap<String, Push> pushRequests = new LinkedHashMap<String, Push>() {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Push> eldest) {
+      return size() > MAX_KEPT_REQUESTS && eldest.getValue().state != State.PENDING
+          && eldest.getValue().state != State.RUNNING;
+    }
+  };
+
+  /**
+   * Create a new push scheduler
+   *
+   * @param action The action performing the push of a repository
+   * @param threads The number of pushes running in parallel
+   * @param maxAttempts The number of attempts before a push is considered failed
+   * @param retryDelay The delay in milliseconds before the first retry, doubled for every retry
+   */
+
+  public PushScheduler(PushAction action, int threads, int maxAttempts, long retryDelay) {
+    this.action = action;
+    this.maxAttempts = maxAttempts;
+    this.retryDelay = retryDelay;
+    this.executor = Executors.newScheduledThreadPool(threads, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "push-scheduler");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Request a push of a repository. If a push of the repository is already waiting, the request is
+   * coalesced into it.
+   *
+   * @param repositoryName The name of the repository
+   * @return The push id identifying the request
+   */
+
+  public synchronized String submit(String repositoryName) {
+    String pushId = UUID.randomUUID().toString();
+    Push push = pendingPushes.get(repositoryName);
+    if (push == null) {
+      push = new Push(repositoryName);
+      pendingPushes.put(repositoryName, push);
+      schedule(push, 0);
+    }
+    push.pushIds.add(pushId);
+    push.attempts.put(pushId, 0);
+    pushRequests.put(pushId, push);
+    return pushId;
+  }
+
+  /**
+   * Get the push serving a push request
+   *
+   * @param pushId The push id of the request
+   * @return The push of the request or null if the push id is unknown
+   */
+
+  public synchronized Push getPush(String pushId) {
+    return pushRequests.get(pushId);
+  }
+
+  /**
+   * Stop the scheduler. Pushes that have not been started yet are discarded.
+   */
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void schedule(final Push push, long delay) {
+    executor.schedule(new Runnable() {
+      @Override
+      public void run() {
+        execute(push);
+      }
+    }, delay, TimeUnit.MILLISECONDS);
+  }
+
+  private void execute(Push push) {
+    synchronized (this) {
+      // requests arriving from now on need a new push, as they may contain newer commits
+      pendingPushes.remove(push.repositoryName, push);
+      push.state = State.RUNNING;
+      for (String pushId : push.pushIds) {
+        push.attempts.put(pushId, push.attempts.get(pushId) + 1);
+      }
+    }
+
+    try {
+      action.push(push.repositoryName);
+      push.error = null;
+      push.state = State.DONE;
+    } catch (Exception e) {
+      logger.printStackTrace(e);
+      push.error = e.getMessage();
+      retry(push);
+    }
+  }
+
+  private synchronized void retry(Push push) {
+    // requests with attempts left move to a pending push, the others stay on the failed one
+    List<String> retried = new ArrayList<String>();
+    int mostAttempts = 0;
+    for (String pushId : push.pushIds) {
+      int attempts = push.attempts.get(pushId);
+      if (attempts < maxAttempts) {
+        retried.add(pushId);
+        mostAttempts = Math.max(mostAttempts, attempts);
+      }
+    }
+    push.pushIds.removeAll(retried);
+    push.state = State.FAILED;
+    if (retried.isEmpty()) {
+      return;
+    }
+
+    Push pending = pendingPushes.get(push.repositoryName);
+    if (pending == null) {
+      // a fresh push, so that requests joining it get their own attempts
+      pending = new Push(push.repositoryName);
+      pendingPushes.put(push.repositoryName, pending);
+      schedule(pending, retryDelay << (mostAttempts - 1));
+    }
+    // otherwise a newer push of the repository is waiting anyway and also serves these requests
+    for (String pushId : retried) {
+      pending.pushIds.add(pushId);
+      pending.attempts.put(pushId, push.attempts.get(pushId));
+      pushRequests.put(pushId, pending);
+    }
+  }
+
+}
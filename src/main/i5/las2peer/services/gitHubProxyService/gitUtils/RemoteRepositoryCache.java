@@ -0,0 +1,175 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jgit.errors.NoRemoteRepositoryException;
+import org.eclipse.jgit.lib.Ref;
+
+/**
+ * Caches the ref listings of remote repositories by their url for a limited time. A repository
+ * the git server reported as not found is remembered as missing, usually for a shorter time, so
+ * that requests for a component that does not exist yet do not query the git server one by one.
+ * Other errors, e.g. timeouts or unavailable servers, are not cached. Concurrent lookups of the
+ * same url share a single listing.
+ */
+
+public class RemoteRepositoryCache {
+
+  /**
+   * Lists the refs of a remote repository, failing with a {@link NoRemoteRepositoryException} if
+   * the repository does not exist
+   */
+
+  public interface RefLister {
+    Collection<Ref> listRefs(String url) throws Exception;
+  }
+
+  private static class Listing {
+    // null if the repository does not exist
+    private final Collection<Ref> refs;
+    private final long expiresAt;
+
+    private Listing(Collection<Ref> refs, long expiresAt) {
+      this.refs = refs;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private final RefLister lister;
+  private final ConcurrentHashMap<String, CompletableFuture<Listing>> listings =
+      new ConcurrentHashMap<String, CompletableFuture<Listing>>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  private volatile long timeToLive;
+  private volatile long negativeTimeToLive;
+
+  /**
+   * Create a new remote repository cache
+   *
+   * @param lister Lists the refs of a remote repository
+   * @param timeToLive The time in milliseconds the listing of an existing repository is cached
+   * @param negativeTimeToLive The time in milliseconds a missing repository is cached
+   */
+
+  public RemoteRepositoryCache(RefLister lister, long timeToLive, long negativeTimeToLive) {
+    this.lister = lister;
+    this.timeToLive = timeToLive;
+    this.negativeTimeToLive = negativeTimeToLive;
+  }
+
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  public void setNegativeTimeToLive(long negativeTimeToLive) {
+    this.negativeTimeToLive = negativeTimeToLive;
+  }
+
+  /**
+   * Check whether a remote repository exists
+   *
+   * @param url The url of the repository
+   * @return True, if the repository exists
+   * @throws IOException Thrown if the repository could not be listed for another reason than not
+   *         existing
+   */
+
+  public boolean exists(String url) throws IOException {
+    return getListing(url).refs != null;
+  }
+
+  /**
+   * Get the refs of a remote repository
+   *
+   * @param url The url of the repository
+   * @return The refs of the repository or null if the repository does not exist
+   * @throws IOException Thrown if the repository could not be listed for another reason than not
+   *         existing
+   */
+
+  public Collection<Ref> getRefs(String url) throws IOException {
+    return getListing(url).refs;
+  }
+
+  /**
+   * Forget the listing of a remote repository, e.g. after pushing to it or creating it
+   *
+   * @param url The url of the repository
+   */
+
+  public void invalidate(String url) {
+    listings.remove(url);
+  }
+
+  /**
+   * Forget the listings of all remote repositories
+   */
+
+  public void invalidateAll() {
+    listings.clear();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  private Listing getListing(String url) throws IOException {
+    while (true) {
+      CompletableFuture<Listing> current = listings.get(url);
+      // a running listing is shared, a finished one is used until it expires
+      if (current != null && (!current.isDone() || current.isCompletedExceptionally()
+          || current.join().expiresAt > System.currentTimeMillis())) {
+        hits.incrementAndGet();
+        return await(current);
+      }
+
+      CompletableFuture<Listing> created = new CompletableFuture<Listing>();
+      boolean installed = current == null ? listings.putIfAbsent(url, created) == null
+          : listings.replace(url, current, created);
+      if (installed) {
+        misses.incrementAndGet();
+        try {
+          created.complete(list(url));
+        } catch (IOException e) {
+          // the requests waiting for this listing fail as well, later ones list again
+          listings.remove(url, created);
+          created.completeExceptionally(e);
+        }
+        return await(created);
+      }
+    }
+  }
+
+  private Listing list(String url) throws IOException {
+    try {
+      Collection<Ref> refs = lister.listRefs(url);
+      return new Listing(refs, System.currentTimeMillis() + timeToLive);
+    } catch (Exception e) {
+      for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+        if (cause instanceof NoRemoteRepositoryException) {
+          return new Listing(null, System.currentTimeMillis() + negativeTimeToLive);
+        }
+      }
+      throw new IOException("The remote repository " + url + " could not be listed", e);
+    }
+  }
+
+  private static Listing await(CompletableFuture<Listing> listing) throws IOException {
+    try {
+      return listing.join();
+    } catch (CompletionException e) {
+      throw (IOException) e.getCause();
+    }
+  }
+
+}
@@ -0,0 +1,85 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Manages a lock per repository. Writers of the same repository are serialized, while
+ * operations on different repositories never block each other. A lock is only kept while it is
+ * held or waited for, so that the locks of deleted or evicted repositories do not pile up.
+ */
+
+public class RepositoryLockManager {
+
+  /**
+   * A held lock of a repository that is released when it is closed, so that it can be used within
+   * a try-with-resources statement.
+   */
+
+  public class LockHandle implements AutoCloseable {
+    private final String repositoryName;
+    private final RepositoryLock lock;
+
+    private LockHandle(String repositoryName) {
+      this.repositoryName = repositoryName;
+      this.lock = acquire(repositoryName);
+      lock.lock();
+    }
+
+    @Override
+    public void close() {
+      lock.unlock();
+      release(repositoryName);
+    }
+  }
+
+  /**
+   * The lock of a repository with the number of threads holding or waiting for it, which is only
+   * changed within the atomic updates of the map
+   */
+
+  private static class RepositoryLock extends ReentrantLock {
+    private static final long serialVersionUID = 1L;
+
+    private int users = 0;
+  }
+
+  private final ConcurrentHashMap<String, RepositoryLock> locks =
+      new ConcurrentHashMap<String, RepositoryLock>();
+
+  private RepositoryLock acquire(String repositoryName) {
+    return locks.compute(repositoryName, (name, lock) -> {
+      if (lock == null) {
+        lock = new RepositoryLock();
+      }
+      lock.users++;
+      return lock;
+    });
+  }
+
+  private void release(String repositoryName) {
+    locks.computeIfPresent(repositoryName, (name, lock) -> --lock.users > 0 ? lock : null);
+  }
+
+  /**
+   * Get the number of repositories whose lock is currently held or waited for
+   *
+   * @return The number of locks
+   */
+
+  public int size() {
+    return locks.size();
+  }
+
+  /**
+   * Acquire the exclusive lock of a repository
+   *
+   * @param repositoryName The name of the repository
+   * @return The held lock, which must be closed after use
+   */
+
+  public LockHandle lockForWriting(String repositoryName) {
+    return new LockHandle(repositoryName);
+  }
+
+}
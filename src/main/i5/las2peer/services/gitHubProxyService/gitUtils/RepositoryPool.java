@@ -0,0 +1,302 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.Repository;
+
+import i5.las2peer.logging.L2pLogger;
+import i5.las2peer.services.gitHubProxyService.GitHubProxyService;
+
+/**
+ * A pool of long-lived repository handles keyed by the repository name. Opened repositories are
+ * reference counted and stay open after the last user released them, so that pack indexes, refs
+ * and the config do not have to be re-read from disk for every request. Unused handles are closed
+ * after an idle timeout or if the number of open handles exceeds the configured bound. The idle
+ * timeout is checked on every acquisition and, once started, periodically in the background.
+ */
+
+public class RepositoryPool {
+
+  private static final L2pLogger logger = L2pLogger.getInstance(GitHubProxyService.class.getName());
+
+  /**
+   * A pooled repository handle
+   */
+
+  static class Entry {
+    private final String repositoryName;
+    private final Repository repository;
+    private int refCount = 0;
+    private long lastUsed = System.currentTimeMillis();
+    private boolean retired = false;
+
+    private Entry(String repositoryName, Repository repository) {
+      this.repositoryName = repositoryName;
+      this.repository = repository;
+    }
+
+    public String getRepositoryName() {
+      return repositoryName;
+    }
+
+    public Repository getRepository() {
+      return repository;
+    }
+  }
+
+  // access ordered, so that iteration starts with the least recently used entry
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  // the number of threads opening each repository outside of the lock
+  private final HashMap<String, Integer> opening = new HashMap<>();
+  // the repositories currently removed, which are not acquired until the removal is done
+  private final HashSet<String> removing = new HashSet<>();
+
+  private volatile int maxOpen;
+  private volatile long idleTimeout;
+  private ScheduledExecutorService executor;
+
+  /**
+   * Create a new repository pool
+   *
+   * @param maxOpen The maximum number of repositories kept open
+   * @param idleTimeout The time in milliseconds after which an unused repository is closed
+   */
+
+  public RepositoryPool(int maxOpen, long idleTimeout) {
+    this.maxOpen = maxOpen;
+    this.idleTimeout = idleTimeout;
+  }
+
+  public void setMaxOpen(int maxOpen) {
+    this.maxOpen = maxOpen;
+  }
+
+  public void setIdleTimeout(long idleTimeout) {
+    this.idleTimeout = idleTimeout;
+  }
+
+  /**
+   * Acquire the handle of a repository. If the repository is not open yet, the opener is used to
+   * open it. Every acquired handle must be given back with {@link #release(Entry)}. If the
+   * repository is being removed, the removal is awaited and the repository is opened again.
+   *
+   * @param repositoryName The name of the repository
+   * @param opener Opens the repository if it is not pooled yet
+   * @return The pooled handle of the repository
+   * @throws Exception Thrown if the repository could not be opened
+   */
+
+  Entry acquire(String repositoryName, Callable<Repository> opener) throws Exception {
+    synchronized (this) {
+      evictIdle();
+      while (removing.contains(repositoryName)) {
+        wait();
+      }
+      Entry entry = entries.get(repositoryName);
+      if (entry != null) {
+        entry.refCount++;
+        return entry;
+      }
+      opening.merge(repositoryName, 1, Integer::sum);
+    }
+
+    // open the repository outside of the lock, as this may even clone it
+    Repository repository;
+    try {
+      repository = opener.call();
+    } catch (Throwable e) {
+      synchronized (this) {
+        doneOpening(repositoryName);
+      }
+      throw e;
+    }
+
+    synchronized (this) {
+      doneOpening(repositoryName);
+      Entry entry = entries.get(repositoryName);
+      if (entry != null) {
+        // another thread opened the same repository in the meantime
+        repository.close();
+      } else {
+        entry = new Entry(repositoryName, repository);
+        entries.put(repositoryName, entry);
+        evictExceeding();
+      }
+      entry.refCount++;
+      return entry;
+    }
+  }
+
+  /**
+   * Give a handle acquired with {@link #acquire(String, Callable)} back to the pool.
+   *
+   * @param entry The handle to release
+   */
+
+  synchronized void release(Entry entry) {
+    entry.refCount--;
+    entry.lastUsed = System.currentTimeMillis();
+    if (entry.retired) {
+      if (entry.refCount == 0) {
+        entry.repository.close();
+      }
+    } else {
+      evictExceeding();
+    }
+  }
+
+  /**
+   * Remove a repository from the pool, e.g. because it was deleted from disk. A handle that is
+   * still in use is closed as soon as its last user released it.
+   *
+   * @param repositoryName The name of the repository
+   */
+
+  public synchronized void invalidate(String repositoryName) {
+    Entry entry = entries.remove(repositoryName);
+    if (entry != null) {
+      retire(entry);
+    }
+  }
+
+  /**
+   * Remove a repository from the pool unless it is in use, e.g. to delete it from disk. The check
+   * and the removal are atomic: the repository is neither acquired nor opened while the removal
+   * runs, acquisitions wait for it to finish and open the repository again afterwards.
+   *
+   * @param repositoryName The name of the repository
+   * @param removal Removes the repository once its handle was closed, returns whether it did so
+   * @return True, if the repository was removed, false if it is in use or the removal declined
+   * @throws Exception Thrown if the removal failed
+   */
+
+  boolean removeIfUnused(String repositoryName, Callable<Boolean> removal) throws Exception {
+    synchronized (this) {
+      Entry entry = entries.get(repositoryName);
+      if ((entry != null && entry.refCount > 0) || opening.containsKey(repositoryName)
+          || removing.contains(repositoryName)) {
+        return false;
+      }
+      if (entry != null) {
+        entries.remove(repositoryName);
+        retire(entry);
+      }
+      removing.add(repositoryName);
+    }
+
+    try {
+      return removal.call();
+    } finally {
+      synchronized (this) {
+        removing.remove(repositoryName);
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Close idle repositories periodically in the background, so that their handles are not kept
+   * open after the last request. A previously started schedule is replaced.
+   *
+   * @param interval The interval in milliseconds in which idle repositories are closed, 0 to stop
+   *        closing them in the background
+   */
+
+  public synchronized void startEviction(long interval) {
+    shutdown();
+    if (interval <= 0) {
+      return;
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "repository-pool-eviction");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(() -> evictIdle(), interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop closing idle repositories in the background. They are still closed on the next
+   * acquisition.
+   */
+
+  public synchronized void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /**
+   * Close all repositories that were not used within the idle timeout.
+   */
+
+  public synchronized void evictIdle() {
+    long now = System.currentTimeMillis();
+    Iterator<Entry> it = entries.values().iterator();
+    while (it.hasNext()) {
+      Entry entry = it.next();
+      if (entry.refCount == 0 && now - entry.lastUsed > idleTimeout) {
+        it.remove();
+        retire(entry);
+      }
+    }
+  }
+
+  /**
+   * Close all pooled repositories.
+   */
+
+  public synchronized void closeAll() {
+    for (Entry entry : entries.values()) {
+      retire(entry);
+    }
+    entries.clear();
+  }
+
+  /**
+   * Get the number of currently open repositories.
+   *
+   * @return The number of open repositories
+   */
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private void evictExceeding() {
+    Iterator<Entry> it = entries.values().iterator();
+    while (entries.size() > maxOpen && it.hasNext()) {
+      Entry entry = it.next();
+      if (entry.refCount == 0) {
+        it.remove();
+        retire(entry);
+      }
+    }
+    if (entries.size() > maxOpen) {
+      logger.fine("All " + entries.size() + " pooled repositories are in use, exceeding "
+          + maxOpen + " open repositories");
+    }
+  }
+
+  private void doneOpening(String repositoryName) {
+    if (opening.merge(repositoryName, -1, Integer::sum) == 0) {
+      opening.remove(repositoryName);
+    }
+  }
+
+  private void retire(Entry entry) {
+    entry.retired = true;
+    if (entry.refCount == 0) {
+      entry.repository.close();
+    }
+  }
+
+}
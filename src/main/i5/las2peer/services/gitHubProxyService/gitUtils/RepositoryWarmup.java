@@ -0,0 +1,157 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import i5.las2peer.logging.L2pLogger;
+import i5.las2peer.services.gitHubProxyService.GitHubProxyService;
+
+/**
+ * Warms up repositories in the background, e.g. at service startup, so that the first requests
+ * for them neither have to clone nor to open them. The repositories are warmed up in parallel by a
+ * bounded number of threads and the progress of each repository is recorded.
+ */
+
+public class RepositoryWarmup {
+
+  private static final L2pLogger logger = L2pLogger.getInstance(GitHubProxyService.class.getName());
+
+  /**
+   * The action warming up a single repository
+   */
+
+  public interface WarmupAction {
+    void warmUp(String repositoryName) throws Exception;
+  }
+
+  /**
+   * The state of a warmup or of the warmup of a single repository
+   */
+
+  public enum State {
+    PENDING, RUNNING, DONE, FAILED
+  }
+
+  private final Map<String, State> states = new LinkedHashMap<String, State>();
+  private final Map<String, String> errors = new LinkedHashMap<String, String>();
+  private final AtomicInteger finished = new AtomicInteger();
+  private volatile State state = State.PENDING;
+  private ExecutorService executor;
+
+  /**
+   * Start warming up repositories. The method returns immediately.
+   *
+   * @param repositoryNames The names of the repositories to warm up
+   * @param action The action warming up a single repository
+   * @param threads The number of repositories warmed up in parallel
+   */
+
+  public void start(Collection<String> repositoryNames, final WarmupAction action, int threads) {
+    synchronized (this) {
+      for (String repositoryName : repositoryNames) {
+        states.put(repositoryName, State.PENDING);
+      }
+      state = states.isEmpty() ? State.DONE : State.RUNNING;
+    }
+    if (state == State.DONE) {
+      return;
+    }
+    logger.info("Warming up " + repositoryNames.size() + " repositories");
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "repository-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      }
+    });
+    for (final String repositoryName : repositoryNames) {
+      executor.execute(() -> warmUp(repositoryName, action));
+    }
+    // the threads terminate as soon as all repositories are warmed up
+    executor.shutdown();
+    synchronized (this) {
+      this.executor = executor;
+    }
+  }
+
+  /**
+   * Stop the warmup, e.g. when the service is stopped. Repositories whose warmup has not started
+   * yet are not warmed up any more, running warmups are interrupted.
+   */
+
+  public synchronized void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  private void warmUp(String repositoryName, WarmupAction action) {
+    setState(repositoryName, State.RUNNING, null);
+    try {
+      action.warmUp(repositoryName);
+      setState(repositoryName, State.DONE, null);
+    } catch (Exception e) {
+      logger.warning("Warmup of " + repositoryName + " failed: " + e.getMessage());
+      setState(repositoryName, State.FAILED, e.getMessage());
+    } catch (Error e) {
+      setState(repositoryName, State.FAILED, String.valueOf(e));
+      throw e;
+    } finally {
+      // counted even if the warmup failed with an error, so that the warmup still finishes
+      if (finished.incrementAndGet() == getTotal()) {
+        state = State.DONE;
+        logger.info("Warmup finished");
+      }
+    }
+  }
+
+  private synchronized void setState(String repositoryName, State repositoryState,
+      String error) {
+    states.put(repositoryName, repositoryState);
+    if (error != null) {
+      errors.put(repositoryName, error);
+    }
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  public synchronized int getTotal() {
+    return states.size();
+  }
+
+  public int getFinished() {
+    return finished.get();
+  }
+
+  /**
+   * Get the warmup states of all repositories
+   *
+   * @return A copy of the states by repository name, in the order of the warmup
+   */
+
+  public synchronized Map<String, State> getRepositoryStates() {
+    return new LinkedHashMap<String, State>(states);
+  }
+
+  /**
+   * Get the errors of the repositories whose warmup failed
+   *
+   * @return A copy of the error messages by repository name
+   */
+
+  public synchronized Map<String, String> getErrors() {
+    return new LinkedHashMap<String, String>(errors);
+  }
+
+}
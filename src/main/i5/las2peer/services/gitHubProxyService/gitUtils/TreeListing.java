@@ -0,0 +1,274 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+/**
+ * The recursive listing of all files and folders of a tree, including the sizes and blob ids of
+ * the files. Since a tree never changes, the listing is built in a single tree walk and can be
+ * kept for as long as the tree is requested. The entries are in tree walk order, so the entries
+ * below a folder are contiguous and pages of any folder are ranges of the same list. Cursors
+ * encode the tree id and the position of the next entry, so that following pages are read from
+ * the same tree even if the branch moved on in between.
+ */
+
+public class TreeListing {
+
+  /**
+   * Decides which files and folders are listed. Folders that are not listed are not entered.
+   */
+
+  public interface Filter {
+    boolean include(String path, boolean folder);
+  }
+
+  /**
+   * A listed file or folder
+   */
+
+  public static class Entry {
+    private final String path;
+    private final boolean folder;
+    private final ObjectId blobId;
+    private final long size;
+
+    private Entry(String path, boolean folder, ObjectId blobId, long size) {
+      this.path = path;
+      this.folder = folder;
+      this.blobId = blobId;
+      this.size = size;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    public boolean isFolder() {
+      return folder;
+    }
+
+    /**
+     * Get the blob id of a file
+     *
+     * @return The blob id, null for folders
+     */
+
+    public ObjectId getBlobId() {
+      return blobId;
+    }
+
+    /**
+     * Get the size of a file
+     *
+     * @return The size in bytes, 0 for folders
+     */
+
+    public long getSize() {
+      return size;
+    }
+  }
+
+  /**
+   * A page of the entries below a folder
+   */
+
+  public static class Page {
+    private final List<Entry> entries;
+    private final String cursor;
+
+    private Page(List<Entry> entries, String cursor) {
+      this.entries = entries;
+      this.cursor = cursor;
+    }
+
+    public List<Entry> getEntries() {
+      return entries;
+    }
+
+    /**
+     * Get the cursor of the next page
+     *
+     * @return The cursor, null if this is the last page
+     */
+
+    public String getCursor() {
+      return cursor;
+    }
+  }
+
+  /**
+   * A decoded cursor
+   */
+
+  public static class Cursor {
+    private final ObjectId treeId;
+    private final int position;
+
+    private Cursor(ObjectId treeId, int position) {
+      this.treeId = treeId;
+      this.position = position;
+    }
+
+    public ObjectId getTreeId() {
+      return treeId;
+    }
+
+    public int getPosition() {
+      return position;
+    }
+  }
+
+  private static final int CURSOR_LENGTH = Constants.OBJECT_ID_LENGTH + 4;
+
+  private final ObjectId treeId;
+  private final List<Entry> entries;
+  // the first and the last (exclusive) position of the entries below each listed folder
+  private final Map<String, int[]> folders;
+
+  private TreeListing(ObjectId treeId, List<Entry> entries, Map<String, int[]> folders) {
+    this.treeId = treeId;
+    this.entries = entries;
+    this.folders = folders;
+  }
+
+  /**
+   * List a tree recursively
+   *
+   * @param repository The repository of the tree
+   * @param tree The tree to list
+   * @param filter Decides which files and folders are listed
+   * @return The listing of the tree
+   * @throws IOException Thrown if the tree or the size of a blob could not be read
+   */
+
+  public static TreeListing build(Repository repository, RevTree tree, Filter filter)
+      throws IOException {
+    List<Entry> entries = new ArrayList<Entry>();
+    Map<String, int[]> folders = new HashMap<String, int[]>();
+    // the folders the tree walk is currently in, innermost first
+    Deque<String> open = new ArrayDeque<String>();
+    folders.put("", new int[] {0, 0});
+    open.push("");
+
+    try (TreeWalk treeWalk = new TreeWalk(repository)) {
+      treeWalk.addTree(tree);
+      while (treeWalk.next()) {
+        String path = treeWalk.getPathString();
+        while (!open.peek().isEmpty() && !path.startsWith(open.peek() + "/")) {
+          folders.get(open.pop())[1] = entries.size();
+        }
+
+        boolean folder = treeWalk.isSubtree();
+        if (!filter.include(path, folder)) {
+          continue;
+        }
+        if (folder) {
+          entries.add(new Entry(path, true, null, 0));
+          folders.put(path, new int[] {entries.size(), 0});
+          open.push(path);
+          treeWalk.enterSubtree();
+        } else {
+          ObjectId blobId = treeWalk.getObjectId(0);
+          long size = treeWalk.getObjectReader().getObjectSize(blobId, Constants.OBJ_BLOB);
+          entries.add(new Entry(path, false, blobId, size));
+        }
+      }
+    }
+    while (!open.isEmpty()) {
+      folders.get(open.pop())[1] = entries.size();
+    }
+
+    return new TreeListing(tree.copy(), Collections.unmodifiableList(entries), folders);
+  }
+
+  public ObjectId getTreeId() {
+    return treeId;
+  }
+
+  /**
+   * Get a page of the entries below a folder. A folder that is not listed, e.g. because it does
+   * not exist or was filtered, has no entries.
+   *
+   * @param folder The path of the folder, empty for the root of the tree
+   * @param cursor The cursor of the page, null for the first page
+   * @param pageSize The maximum number of entries of the page
+   * @return The page
+   * @throws IllegalArgumentException Thrown if the cursor does not belong to the folder of this
+   *         tree
+   */
+
+  public Page getPage(String folder, Cursor cursor, int pageSize) {
+    int[] range = folders.get(folder);
+    if (range == null) {
+      range = new int[] {0, 0};
+    }
+    int start = range[0];
+    if (cursor != null) {
+      if (!cursor.getTreeId().equals(treeId) || cursor.getPosition() < range[0]
+          || cursor.getPosition() > range[1]) {
+        throw new IllegalArgumentException("The cursor does not belong to " + folder);
+      }
+      start = cursor.getPosition();
+    }
+    int end = (int) Math.min((long) start + Math.max(pageSize, 1), range[1]);
+    return new Page(entries.subList(start, end),
+        end < range[1] ? encodeCursor(treeId, end) : null);
+  }
+
+  /**
+   * Get the number of listed files and folders
+   *
+   * @return The number of entries
+   */
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Encode a cursor into an opaque, url safe string
+   *
+   * @param treeId The id of the listed tree
+   * @param position The position of the next entry
+   * @return The encoded cursor
+   */
+
+  public static String encodeCursor(ObjectId treeId, int position) {
+    ByteBuffer buffer = ByteBuffer.allocate(CURSOR_LENGTH);
+    treeId.copyRawTo(buffer);
+    buffer.putInt(position);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  /**
+   * Decode a cursor
+   *
+   * @param cursor The encoded cursor
+   * @return The decoded cursor
+   * @throws IllegalArgumentException Thrown if the string is no cursor
+   */
+
+  public static Cursor decodeCursor(String cursor) {
+    byte[] raw = Base64.getUrlDecoder().decode(cursor);
+    if (raw.length != CURSOR_LENGTH) {
+      throw new IllegalArgumentException("Invalid cursor " + cursor);
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(raw);
+    return new Cursor(ObjectId.fromRaw(raw), buffer.getInt(Constants.OBJECT_ID_LENGTH));
+  }
+
+}
@@ -0,0 +1,210 @@
+package i5.las2peer.services.gitHubProxyService.jsonUtils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Writes json directly into a string builder while the data is produced, e.g. while a tree walk
+ * runs, so that large responses are not built as json-simple objects first. Names and string
+ * values are escaped as required by RFC 8259, and commas between members and elements are inserted
+ * automatically.
+ */
+
+public class JsonWriter {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final StringBuilder target;
+  // per open object or array, whether a member or element was written already
+  private final Deque<Boolean> nonEmpty = new ArrayDeque<Boolean>();
+  private boolean afterName = false;
+
+  /**
+   * Create a json writer appending to a new string builder
+   */
+
+  public JsonWriter() {
+    this(new StringBuilder());
+  }
+
+  /**
+   * Create a json writer appending to a string builder
+   *
+   * @param target The string builder to append to
+   */
+
+  public JsonWriter(StringBuilder target) {
+    this.target = target;
+  }
+
+  public JsonWriter beginObject() {
+    beforeValue();
+    target.append('{');
+    nonEmpty.push(false);
+    return this;
+  }
+
+  public JsonWriter endObject() {
+    nonEmpty.pop();
+    target.append('}');
+    return this;
+  }
+
+  public JsonWriter beginArray() {
+    beforeValue();
+    target.append('[');
+    nonEmpty.push(false);
+    return this;
+  }
+
+  public JsonWriter endArray() {
+    nonEmpty.pop();
+    target.append(']');
+    return this;
+  }
+
+  /**
+   * Write the name of the next member of the current object
+   *
+   * @param name The name of the member
+   * @return This writer
+   */
+
+  public JsonWriter name(String name) {
+    beforeValue();
+    appendString(name);
+    target.append(':');
+    afterName = true;
+    return this;
+  }
+
+  public JsonWriter value(String value) {
+    if (value == null) {
+      return nullValue();
+    }
+    beforeValue();
+    appendString(value);
+    return this;
+  }
+
+  public JsonWriter value(Number value) {
+    if (value == null) {
+      return nullValue();
+    }
+    beforeValue();
+    target.append(value);
+    return this;
+  }
+
+  public JsonWriter value(boolean value) {
+    beforeValue();
+    target.append(value);
+    return this;
+  }
+
+  public JsonWriter nullValue() {
+    beforeValue();
+    target.append("null");
+    return this;
+  }
+
+  /**
+   * Write a value that is already serialized json, e.g. by json-simple
+   *
+   * @param json The serialized json value
+   * @return This writer
+   */
+
+  public JsonWriter rawValue(String json) {
+    beforeValue();
+    target.append(json);
+    return this;
+  }
+
+  /**
+   * Begin a string value whose content is appended directly to the returned string builder. Only
+   * characters that need no escaping may be appended, e.g. base64. The string must be ended with
+   * {@link #endString()}.
+   *
+   * @return The string builder to append the content to
+   */
+
+  public StringBuilder beginString() {
+    beforeValue();
+    target.append('"');
+    return target;
+  }
+
+  public JsonWriter endString() {
+    target.append('"');
+    return this;
+  }
+
+  /**
+   * Get the written json
+   *
+   * @return The json written so far
+   */
+
+  @Override
+  public String toString() {
+    return target.toString();
+  }
+
+  private void beforeValue() {
+    if (afterName) {
+      afterName = false;
+      return;
+    }
+    if (!nonEmpty.isEmpty()) {
+      if (nonEmpty.peek()) {
+        target.append(',');
+      } else {
+        nonEmpty.pop();
+        nonEmpty.push(true);
+      }
+    }
+  }
+
+  private void appendString(String value) {
+    target.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          target.append("\\\"");
+          break;
+        case '\\':
+          target.append("\\\\");
+          break;
+        case '\n':
+          target.append("\\n");
+          break;
+        case '\r':
+          target.append("\\r");
+          break;
+        case '\t':
+          target.append("\\t");
+          break;
+        case '\b':
+          target.append("\\b");
+          break;
+        case '\f':
+          target.append("\\f");
+          break;
+        default:
+          // control characters, and the line separators that javascript does not allow in strings
+          if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+            target.append("\\u");
+            for (int shift = 12; shift >= 0; shift -= 4) {
+              target.append(HEX[(c >> shift) & 0xf]);
+            }
+          } else {
+            target.append(c);
+          }
+      }
+    }
+    target.append('"');
+  }
+
+}
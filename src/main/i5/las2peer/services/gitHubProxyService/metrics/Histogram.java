@@ -0,0 +1,67 @@
+package i5.las2peer.services.gitHubProxyService.metrics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram with fixed buckets. Observations are recorded lock free, so that recording
+ * does not serialize the requests being measured.
+ */
+
+public class Histogram {
+
+  // upper bounds of the buckets in seconds, from half a millisecond up to a minute
+  static final double[] BUCKETS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25,
+      0.5, 1, 2.5, 5, 10, 30, 60};
+
+  // the last counter holds the observations above the largest bucket
+  private final LongAdder[] bucketCounts = new LongAdder[BUCKETS.length + 1];
+  private final LongAdder count = new LongAdder();
+  private final DoubleAdder sum = new DoubleAdder();
+
+  public Histogram() {
+    for (int i = 0; i < bucketCounts.length; i++) {
+      bucketCounts[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Record an observation
+   *
+   * @param seconds The observed duration in seconds
+   */
+
+  public void observe(double seconds) {
+    int bucket = 0;
+    while (bucket < BUCKETS.length && seconds > BUCKETS[bucket]) {
+      bucket++;
+    }
+    bucketCounts[bucket].increment();
+    count.increment();
+    sum.add(seconds);
+  }
+
+  /**
+   * Get the number of observations up to and including a bucket
+   *
+   * @param bucket The index of the bucket, {@link #BUCKETS}.length for all observations
+   * @return The cumulative number of observations
+   */
+
+  long getCumulativeCount(int bucket) {
+    long cumulative = 0;
+    for (int i = 0; i <= bucket; i++) {
+      cumulative += bucketCounts[i].sum();
+    }
+    return cumulative;
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public double getSum() {
+    return sum.sum();
+  }
+
+}
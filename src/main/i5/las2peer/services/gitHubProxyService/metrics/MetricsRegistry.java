@@ -0,0 +1,258 @@
+package i5.las2peer.services.gitHubProxyService.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collects counters, latency histograms and gauges of the service and exports them in the
+ * Prometheus text exposition format. A metric is identified by its name and a series of a metric
+ * by its label values, e.g. the duration of git operations by the name of the operation.
+ */
+
+public class MetricsRegistry {
+
+  private static final MetricsRegistry instance = new MetricsRegistry();
+
+  /**
+   * A running time measurement that is recorded to its histogram when it is closed, so that it can
+   * be used within a try-with-resources statement.
+   */
+
+  public static class Timer implements AutoCloseable {
+    private final Histogram histogram;
+    private final long start = System.nanoTime();
+    private boolean stopped = false;
+
+    private Timer(Histogram histogram) {
+      this.histogram = histogram;
+    }
+
+    @Override
+    public void close() {
+      if (!stopped) {
+        stopped = true;
+        histogram.observe((System.nanoTime() - start) / 1e9);
+      }
+    }
+  }
+
+  private static class Metric {
+    private final String type;
+    private final String help;
+
+    private Metric(String type, String help) {
+      this.type = type;
+      this.help = help;
+    }
+  }
+
+  private final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<String, Metric>();
+  private final ConcurrentMap<String, ConcurrentMap<String, Histogram>> histograms =
+      new ConcurrentHashMap<String, ConcurrentMap<String, Histogram>>();
+  private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> counters =
+      new ConcurrentHashMap<String, ConcurrentMap<String, LongAdder>>();
+  private final ConcurrentMap<String, Supplier<? extends Number>> callbacks =
+      new ConcurrentHashMap<String, Supplier<? extends Number>>();
+
+  /**
+   * Get the registry shared by all parts of the service
+   *
+   * @return The registry
+   */
+
+  public static MetricsRegistry getInstance() {
+    return instance;
+  }
+
+  /**
+   * Declare a histogram. Declaring is optional, but adds a description to the export.
+   *
+   * @param name The name of the histogram
+   * @param help The description of the histogram
+   */
+
+  public void describeHistogram(String name, String help) {
+    metrics.put(name, new Metric("histogram", help));
+  }
+
+  /**
+   * Declare a counter. Declaring is optional, but adds a description to the export.
+   *
+   * @param name The name of the counter
+   * @param help The description of the counter
+   */
+
+  public void describeCounter(String name, String help) {
+    metrics.put(name, new Metric("counter", help));
+  }
+
+  /**
+   * Register a gauge whose value is read when the metrics are exported. A gauge registered under
+   * the same name before is replaced.
+   *
+   * @param name The name of the gauge
+   * @param help The description of the gauge
+   * @param value Supplies the current value
+   */
+
+  public void registerGauge(String name, String help, Supplier<? extends Number> value) {
+    metrics.put(name, new Metric("gauge", help));
+    callbacks.put(name, value);
+  }
+
+  /**
+   * Register a counter maintained elsewhere, whose value is read when the metrics are exported. A
+   * counter registered under the same name before is replaced.
+   *
+   * @param name The name of the counter
+   * @param help The description of the counter
+   * @param value Supplies the current value
+   */
+
+  public void registerCounter(String name, String help, Supplier<? extends Number> value) {
+    metrics.put(name, new Metric("counter", help));
+    callbacks.put(name, value);
+  }
+
+  /**
+   * Remove a gauge or a counter registered with a callback, e.g. when the component maintaining it
+   * is stopped. Nothing is removed if the name was registered again with another callback since.
+   *
+   * @param name The name of the gauge or counter
+   * @param value The callback it was registered with
+   */
+
+  public void unregister(String name, Supplier<? extends Number> value) {
+    if (callbacks.remove(name, value)) {
+      metrics.remove(name);
+    }
+  }
+
+  /**
+   * Start a time measurement recorded to a histogram
+   *
+   * @param name The name of the histogram
+   * @param labels Pairs of label names and label values identifying the series
+   * @return The running timer, which must be closed to record the measurement
+   */
+
+  public Timer startTimer(String name, String... labels) {
+    return new Timer(getHistogram(name, labels));
+  }
+
+  /**
+   * Get a series of a histogram, e.g. to record durations measured elsewhere
+   *
+   * @param name The name of the histogram
+   * @param labels Pairs of label names and label values identifying the series
+   * @return The histogram of the series
+   */
+
+  public Histogram getHistogram(String name, String... labels) {
+    return histograms.computeIfAbsent(name, key -> new ConcurrentHashMap<String, Histogram>())
+        .computeIfAbsent(formatLabels(labels), key -> new Histogram());
+  }
+
+  /**
+   * Increment a series of a counter
+   *
+   * @param name The name of the counter
+   * @param labels Pairs of label names and label values identifying the series
+   */
+
+  public void increment(String name, String... labels) {
+    counters.computeIfAbsent(name, key -> new ConcurrentHashMap<String, LongAdder>())
+        .computeIfAbsent(formatLabels(labels), key -> new LongAdder()).increment();
+  }
+
+  /**
+   * Export all metrics in the Prometheus text exposition format
+   *
+   * @return The exported metrics
+   */
+
+  public String toPrometheusText() {
+    StringBuilder text = new StringBuilder();
+
+    for (Map.Entry<String, ConcurrentMap<String, Histogram>> histogram : new TreeMap<>(histograms)
+        .entrySet()) {
+      String name = histogram.getKey();
+      appendDescription(text, name, "histogram");
+      for (Map.Entry<String, Histogram> series : new TreeMap<>(histogram.getValue()).entrySet()) {
+        String labels = series.getKey();
+        Histogram values = series.getValue();
+        for (int bucket = 0; bucket < Histogram.BUCKETS.length; bucket++) {
+          appendSample(text, name + "_bucket",
+              addLabel(labels, "le", Double.toString(Histogram.BUCKETS[bucket])),
+              values.getCumulativeCount(bucket));
+        }
+        long count = values.getCumulativeCount(Histogram.BUCKETS.length);
+        appendSample(text, name + "_bucket", addLabel(labels, "le", "+Inf"), count);
+        appendSample(text, name + "_sum", labels, values.getSum());
+        appendSample(text, name + "_count", labels, count);
+      }
+    }
+
+    for (Map.Entry<String, ConcurrentMap<String, LongAdder>> counter : new TreeMap<>(counters)
+        .entrySet()) {
+      appendDescription(text, counter.getKey(), "counter");
+      for (Map.Entry<String, LongAdder> series : new TreeMap<>(counter.getValue()).entrySet()) {
+        appendSample(text, counter.getKey(), series.getKey(), series.getValue().sum());
+      }
+    }
+
+    for (Map.Entry<String, Supplier<? extends Number>> callback : new TreeMap<>(callbacks)
+        .entrySet()) {
+      appendDescription(text, callback.getKey(), "gauge");
+      appendSample(text, callback.getKey(), "", callback.getValue().get());
+    }
+
+    return text.toString();
+  }
+
+  private void appendDescription(StringBuilder text, String name, String defaultType) {
+    Metric metric = metrics.get(name);
+    if (metric != null) {
+      text.append("# HELP ").append(name).append(' ')
+          .append(metric.help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+    }
+    text.append("# TYPE ").append(name).append(' ')
+        .append(metric != null ? metric.type : defaultType).append('\n');
+  }
+
+  private static void appendSample(StringBuilder text, String name, String labels, Number value) {
+    text.append(name).append(labels).append(' ').append(value).append('\n');
+  }
+
+  private static String formatLabels(String... labels) {
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("Labels must be given as pairs of names and values");
+    }
+    StringBuilder formatted = new StringBuilder();
+    for (int i = 0; i < labels.length; i += 2) {
+      formatted.append(i == 0 ? "{" : ",").append(labels[i]).append("=\"")
+          .append(escapeLabelValue(labels[i + 1])).append('"');
+    }
+    if (labels.length > 0) {
+      formatted.append('}');
+    }
+    return formatted.toString();
+  }
+
+  private static String addLabel(String labels, String name, String value) {
+    String label = name + "=\"" + escapeLabelValue(value) + "\"";
+    if (labels.isEmpty()) {
+      return "{" + label + "}";
+    }
+    return labels.substring(0, labels.length() - 1) + "," + label + "}";
+  }
+
+  private static String escapeLabelValue(String value) {
+    return String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+}
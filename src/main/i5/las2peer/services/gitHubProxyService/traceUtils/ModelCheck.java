@@ -0,0 +1,205 @@
+package i5.las2peer.services.gitHubProxyService.traceUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import i5.las2peer.logging.L2pLogger;
+import i5.las2peer.services.gitHubProxyService.GitHubProxyService;
+
+/**
+ * Guards the model violation check of the code generation service. The feedback of a check only
+ * depends on the guidances and the checked files, so it is remembered by a hash of them and
+ * unchanged files are not checked again. A circuit breaker stops calling the check after several
+ * consecutive failures or calls slower than the timeout, so that saves fail fast while the code
+ * generation service is unavailable. After a while a single call is let through to probe whether
+ * the service recovered.
+ */
+
+public class ModelCheck {
+
+  private static final L2pLogger logger = L2pLogger.getInstance(GitHubProxyService.class.getName());
+
+  /**
+   * The actual model violation check
+   */
+
+  public interface Checker {
+    JSONArray check(JSONObject guidances, HashMap<String, JSONObject> tracedFiles)
+        throws Exception;
+  }
+
+  /**
+   * Thrown if the check is not called because the circuit breaker is open
+   */
+
+  public static class UnavailableException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public UnavailableException(String message) {
+      super(message);
+    }
+  }
+
+  private final Checker checker;
+  private final LinkedHashMap<String, JSONArray> feedbacks;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final long timeout;
+  private final int failureThreshold;
+  private final long openDuration;
+
+  private int failures = 0;
+  private long openUntil = 0;
+  private boolean probing = false;
+
+  /**
+   * Create a new guarded model check
+   *
+   * @param checker The actual check
+   * @param maxEntries The maximum number of remembered feedbacks
+   * @param timeout The time in milliseconds after which a call counts as failed
+   * @param failureThreshold The number of consecutive failures opening the circuit breaker
+   * @param openDuration The time in milliseconds the circuit breaker stays open
+   */
+
+  @SuppressWarnings("serial")
+  public ModelCheck(Checker checker, final int maxEntries, long timeout, int failureThreshold,
+      long openDuration) {
+    this.checker = checker;
+    this.timeout = timeout;
+    this.failureThreshold = failureThreshold;
+    this.openDuration = openDuration;
+    // access ordered, so that the least recently used feedback is evicted first
+    feedbacks = new LinkedHashMap<String, JSONArray>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, JSONArray> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Check traced files against the guidances. The guidances are only loaded if the files were not
+   * checked against them before.
+   *
+   * @param guidancesId The blob id of the guidances, null if there are none
+   * @param guidances Loads the guidances
+   * @param tracedFiles The traced files to check, with their content encoded in base64 and their
+   *        file traces
+   * @return The feedback items, empty if no violation was found. The returned array is shared and
+   *         must not be modified.
+   * @throws UnavailableException Thrown if the circuit breaker is open
+   * @throws Exception Thrown if the check failed
+   */
+
+  public JSONArray check(ObjectId guidancesId, Callable<JSONObject> guidances,
+      HashMap<String, JSONObject> tracedFiles) throws Exception {
+    String key = getKey(guidancesId, tracedFiles);
+    synchronized (feedbacks) {
+      JSONArray feedback = feedbacks.get(key);
+      if (feedback != null) {
+        hits.incrementAndGet();
+        return feedback;
+      }
+    }
+    misses.incrementAndGet();
+
+    JSONObject loadedGuidances = guidances.call();
+    acquirePermission();
+    long start = System.currentTimeMillis();
+    JSONArray feedback;
+    try {
+      feedback = checker.check(loadedGuidances, tracedFiles);
+    } catch (Exception e) {
+      recordResult(false);
+      throw e;
+    }
+    long duration = System.currentTimeMillis() - start;
+    if (duration > timeout) {
+      logger.warning("Model check took " + duration + " ms");
+    }
+    recordResult(duration <= timeout);
+
+    if (feedback == null) {
+      feedback = new JSONArray();
+    }
+    synchronized (feedbacks) {
+      feedbacks.put(key, feedback);
+    }
+    return feedback;
+  }
+
+  private synchronized void acquirePermission() throws UnavailableException {
+    if (openUntil == 0) {
+      return;
+    }
+    if (probing || System.currentTimeMillis() < openUntil) {
+      throw new UnavailableException("The model check is unavailable");
+    }
+    // half open, let a single call probe the service
+    probing = true;
+  }
+
+  private synchronized void recordResult(boolean success) {
+    probing = false;
+    if (success) {
+      failures = 0;
+      openUntil = 0;
+    } else if (++failures >= failureThreshold) {
+      if (openUntil == 0) {
+        logger.warning("Model check failed " + failures + " times, not calling it for "
+            + openDuration + " ms");
+      }
+      openUntil = System.currentTimeMillis() + openDuration;
+    }
+  }
+
+  private static String getKey(ObjectId guidancesId, HashMap<String, JSONObject> tracedFiles) {
+    MessageDigest digest = Constants.newMessageDigest();
+    update(digest, guidancesId != null ? guidancesId.name() : "");
+    // sorted, so that the same files always have the same key
+    for (Map.Entry<String, JSONObject> tracedFile : new TreeMap<String, JSONObject>(tracedFiles)
+        .entrySet()) {
+      update(digest, tracedFile.getKey());
+      update(digest, String.valueOf(tracedFile.getValue().get("content")));
+      Object fileTraces = tracedFile.getValue().get("fileTraces");
+      update(digest, fileTraces != null ? JSONObject.toJSONString((Map<?, ?>) fileTraces) : "");
+    }
+    return ObjectId.fromRaw(digest.digest()).name();
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  /**
+   * Check whether the circuit breaker is open, i.e. the check is currently not called
+   *
+   * @return True if the circuit breaker is open
+   */
+
+  public synchronized boolean isOpen() {
+    return openUntil != 0;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+}
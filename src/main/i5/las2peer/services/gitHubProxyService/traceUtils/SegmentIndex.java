@@ -0,0 +1,164 @@
+package i5.las2peer.services.gitHubProxyService.traceUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * An inverted index from the ids of model elements to the file and segments generated for them,
+ * built for one tree of a component repository. The index of a new tree is built from the index of
+ * a previous tree, so that only the trace files that changed in between have to be read again.
+ * Indexes are immutable and can be shared between requests.
+ */
+
+public class SegmentIndex {
+
+  /**
+   * Loads the parsed file traces of a trace file blob
+   */
+
+  public interface TraceLoader {
+    JSONObject load(ObjectId traceFileId) throws Exception;
+  }
+
+  /**
+   * The file and segments generated for a model element
+   */
+
+  public static class Segments {
+    private final String fileName;
+    private final List<String> segmentIds;
+
+    private Segments(String fileName, List<String> segmentIds) {
+      this.fileName = fileName;
+      this.segmentIds = segmentIds;
+    }
+
+    public String getFileName() {
+      return fileName;
+    }
+
+    public List<String> getSegmentIds() {
+      return segmentIds;
+    }
+  }
+
+  // the segments of the model elements in a file, indexed by the blob of its trace file
+  private static class FileEntry {
+    private final ObjectId traceFileId;
+    private final Map<String, List<String>> segmentIds;
+
+    private FileEntry(ObjectId traceFileId, Map<String, List<String>> segmentIds) {
+      this.traceFileId = traceFileId;
+      this.segmentIds = segmentIds;
+    }
+  }
+
+  private final ObjectId treeId;
+  private final Map<String, FileEntry> files;
+  private final Map<String, Segments> segments;
+
+  private SegmentIndex(ObjectId treeId, Map<String, FileEntry> files,
+      Map<String, Segments> segments) {
+    this.treeId = treeId;
+    this.files = files;
+    this.segments = segments;
+  }
+
+  /**
+   * Build the index of a tree
+   *
+   * @param treeId The id of the indexed tree
+   * @param traceModel The global trace model of the tree
+   * @param traceFileIds The blob ids of the trace files of the tree by the names of the traced
+   *        files
+   * @param loader Loads the traces of trace files not indexed by the previous index
+   * @param previous The index of a previous tree of the repository whose unchanged file entries are
+   *        reused, may be null
+   * @return The index of the tree
+   * @throws Exception Thrown if a trace file could not be loaded
+   */
+
+  public static SegmentIndex build(ObjectId treeId, TraceModel traceModel,
+      Map<String, ObjectId> traceFileIds, TraceLoader loader, SegmentIndex previous)
+      throws Exception {
+    Map<String, FileEntry> files = new HashMap<String, FileEntry>();
+    Map<String, Segments> segments = new HashMap<String, Segments>();
+
+    JSONObject modelsToFiles = traceModel.getModelsToFiles();
+    for (Object modelId : modelsToFiles.keySet()) {
+      JSONArray fileList = (JSONArray) ((JSONObject) modelsToFiles.get(modelId)).get("files");
+      if (fileList == null || fileList.isEmpty()) {
+        continue;
+      }
+      // a model element is navigated to its first file
+      String fileName = (String) fileList.get(0);
+      FileEntry entry = files.get(fileName);
+      if (entry == null) {
+        ObjectId traceFileId = traceFileIds.get(fileName);
+        if (traceFileId == null) {
+          continue;
+        }
+        entry = previous != null ? previous.files.get(fileName) : null;
+        if (entry == null || !entry.traceFileId.equals(traceFileId)) {
+          entry = new FileEntry(traceFileId, getSegmentIds(loader.load(traceFileId)));
+        }
+        files.put(fileName, entry);
+      }
+
+      List<String> segmentIds = entry.segmentIds.get(modelId);
+      if (segmentIds != null && !segmentIds.isEmpty()) {
+        segments.put((String) modelId, new Segments(fileName, segmentIds));
+      }
+    }
+
+    return new SegmentIndex(treeId, files, segments);
+  }
+
+  private static Map<String, List<String>> getSegmentIds(JSONObject fileTraces) {
+    Map<String, List<String>> segmentIds = new HashMap<String, List<String>>();
+    JSONObject traces = (JSONObject) fileTraces.get("traces");
+    if (traces == null) {
+      return segmentIds;
+    }
+    for (Object modelId : traces.keySet()) {
+      JSONArray segments = (JSONArray) ((JSONObject) traces.get(modelId)).get("segments");
+      if (segments != null) {
+        List<String> ids = new ArrayList<String>(segments.size());
+        for (Object segmentId : segments) {
+          ids.add((String) segmentId);
+        }
+        segmentIds.put((String) modelId, Collections.unmodifiableList(ids));
+      }
+    }
+    return segmentIds;
+  }
+
+  /**
+   * Get the id of the indexed tree
+   *
+   * @return The id of the tree
+   */
+
+  public ObjectId getTreeId() {
+    return treeId;
+  }
+
+  /**
+   * Look up the file and segments generated for a model element
+   *
+   * @param modelId The id of the model element
+   * @return The file and segments or null if nothing was generated for the model element
+   */
+
+  public Segments get(String modelId) {
+    return segments.get(modelId);
+  }
+
+}
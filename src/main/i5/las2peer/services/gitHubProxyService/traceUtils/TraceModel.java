@@ -0,0 +1,148 @@
+package i5.las2peer.services.gitHubProxyService.traceUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * The global trace model of a component, read from its traces/tracedFiles.json. The traced files
+ * are kept in a hash set for constant time lookups and their folders in a prefix tree, so that
+ * folders without traced files can be recognized without scanning all traced files. Trace models
+ * are immutable and can be shared between requests.
+ */
+
+public class TraceModel {
+
+  private static final TraceModel EMPTY = new TraceModel(null, new JSONObject());
+
+  // a folder of the prefix tree, with its subfolders by their names
+  private static class Folder {
+    private final Map<String, Folder> subfolders = new HashMap<String, Folder>();
+  }
+
+  private final ObjectId blobId;
+  private final Object generationId;
+  private final JSONObject modelsToFiles;
+  private final Set<String> tracedFiles;
+  private final Folder root = new Folder();
+
+  /**
+   * Create a trace model from its parsed json
+   *
+   * @param blobId The id of the blob the trace model was read from, null if there is none
+   * @param json The parsed json of the trace model
+   */
+
+  public TraceModel(ObjectId blobId, JSONObject json) {
+    this.blobId = blobId;
+    this.generationId = json.get("id");
+    JSONObject modelsToFiles = (JSONObject) json.get("modelsToFile");
+    this.modelsToFiles = modelsToFiles != null ? modelsToFiles : new JSONObject();
+
+    Set<String> tracedFiles = new LinkedHashSet<String>();
+    JSONArray tracedFileList = (JSONArray) json.get("tracedFiles");
+    if (tracedFileList != null) {
+      for (Object tracedFile : tracedFileList) {
+        String fileName = (String) tracedFile;
+        tracedFiles.add(fileName);
+
+        Folder folder = root;
+        String[] segments = fileName.split("/");
+        for (int i = 0; i < segments.length - 1; i++) {
+          folder = folder.subfolders.computeIfAbsent(segments[i], name -> new Folder());
+        }
+      }
+    }
+    this.tracedFiles = Collections.unmodifiableSet(tracedFiles);
+  }
+
+  /**
+   * Get the trace model of a component without a trace model
+   *
+   * @return An empty trace model
+   */
+
+  public static TraceModel empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Get the id of the blob the trace model was read from
+   *
+   * @return The blob id or null if the trace model is empty
+   */
+
+  public ObjectId getBlobId() {
+    return blobId;
+  }
+
+  /**
+   * Get the id of the code generation that created the traces
+   *
+   * @return The generation id or null if it is unknown
+   */
+
+  public Object getGenerationId() {
+    return generationId;
+  }
+
+  /**
+   * Get the mapping of model element ids to the files generated for them. The returned json
+   * object is shared and must not be modified.
+   *
+   * @return The json object of the mapping, empty if there is none
+   */
+
+  public JSONObject getModelsToFiles() {
+    return modelsToFiles;
+  }
+
+  /**
+   * Get the traced files in the order of the trace model
+   *
+   * @return An unmodifiable set of the full file names
+   */
+
+  public Set<String> getTracedFiles() {
+    return tracedFiles;
+  }
+
+  /**
+   * Check whether a file is traced
+   *
+   * @param fileName The full file name, i.e. with full file path
+   * @return True if the file is traced
+   */
+
+  public boolean isTraced(String fileName) {
+    return tracedFiles.contains(fileName);
+  }
+
+  /**
+   * Check whether a folder or one of its subfolders contains traced files
+   *
+   * @param path The full path of the folder, empty for the root folder
+   * @return True if the folder contains traced files
+   */
+
+  public boolean hasTracedFiles(String path) {
+    if (path.isEmpty()) {
+      return !tracedFiles.isEmpty();
+    }
+    Folder folder = root;
+    for (String segment : path.split("/")) {
+      folder = folder.subfolders.get(segment);
+      if (folder == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
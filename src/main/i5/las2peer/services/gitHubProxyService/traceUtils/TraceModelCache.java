@@ -0,0 +1,88 @@
+package i5.las2peer.services.gitHubProxyService.traceUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+import i5.las2peer.services.gitHubProxyService.gitUtils.GitHelper;
+
+/**
+ * A size bounded LRU cache of parsed trace models and file traces. As blobs are immutable, the
+ * parsed json of a blob is cached by its repository and blob id and never has to be invalidated.
+ * The cached json objects are shared and must not be modified by the callers.
+ */
+
+public class TraceModelCache {
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final LinkedHashMap<String, JSONObject> entries;
+
+  /**
+   * Create a new trace model cache
+   *
+   * @param maxEntries The maximum number of parsed blobs kept in the cache
+   */
+
+  @SuppressWarnings("serial")
+  public TraceModelCache(final int maxEntries) {
+    // access ordered, so that the least recently used entry is evicted first
+    entries = new LinkedHashMap<String, JSONObject>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, JSONObject> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Get the parsed json of a blob. The blob is only read and parsed if it is not cached yet.
+   *
+   * @param repositoryName The name of the repository
+   * @param repository The repository containing the blob
+   * @param blobId The id of the blob
+   * @return The parsed json of the blob
+   * @throws Exception Thrown if the blob could not be read or parsed
+   */
+
+  public JSONObject get(String repositoryName, Repository repository, ObjectId blobId)
+      throws Exception {
+    String key = repositoryName + ":" + blobId.getName();
+    synchronized (entries) {
+      JSONObject cached = entries.get(key);
+      if (cached != null) {
+        hits.incrementAndGet();
+        return cached;
+      }
+    }
+
+    misses.incrementAndGet();
+    JSONParser parser = new JSONParser();
+    JSONObject parsed = (JSONObject) parser.parse(GitHelper.getBlobContent(repository, blobId));
+
+    synchronized (entries) {
+      entries.put(key, parsed);
+    }
+    return parsed;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+}
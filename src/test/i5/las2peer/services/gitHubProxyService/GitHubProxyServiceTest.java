@@ -206,6 +206,35 @@ public class GitHubProxyServiceTest {
     }
   }
 
+  /**
+   * Tests if malformed requests storing several files are rejected by the service
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void rejectMalformedFilesTest() throws Exception {
+    MiniClient c = new MiniClient();
+    c.setAddressPort(HTTP_ADDRESS, HTTP_PORT);
+
+    // test method
+    try {
+      c.setLogin(Long.toString(testAgent.getId()), testPass);
+      for (String body : new String[] {"{\"commitMessage\":\"no files\"}",
+          "{\"commitMessage\":\"no traces\",\"files\":[{\"filename\":\"widget.xml\","
+              + "\"content\":\"\"}]}",
+          "no json"}) {
+        @SuppressWarnings("unchecked")
+        ClientResponse result = c.sendRequest("PUT",
+            mainPath + "frontendComponent-JUnit-Test-Repository/files/", body,
+            MediaType.APPLICATION_JSON, MediaType.APPLICATION_JSON, new Pair[] {});
+        assertEquals(400, result.getHttpCode());
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail("Exception: " + e);
+    }
+  }
+
   /**
    * Tests a renaming operation for a file in a local repository
    */
@@ -0,0 +1,56 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the eviction of least recently used clones by the {@link DiskQuotaManager}
+ */
+public class DiskQuotaManagerTest {
+
+  /**
+   * The least recently used clones must be evicted until the quota is met, skipping clones that
+   * must be kept
+   */
+  @Test
+  public void evictsLeastRecentlyUsedClones() throws Exception {
+    final List<String> clones = new ArrayList<String>(Arrays.asList("a", "b", "c", "d"));
+    DiskQuotaManager manager = new DiskQuotaManager(new DiskQuotaManager.LocalRepositories() {
+      @Override
+      public List<String> list() {
+        return new ArrayList<String>(clones);
+      }
+
+      @Override
+      public long size(String repositoryName) {
+        return 10;
+      }
+
+      @Override
+      public boolean evict(String repositoryName) {
+        // b has unpushed commits
+        return !repositoryName.equals("b") && clones.remove(repositoryName);
+      }
+    });
+
+    // c was never accessed, b is the least recently accessed one
+    manager.recordAccess("b");
+    Thread.sleep(2);
+    manager.recordAccess("a");
+    Thread.sleep(2);
+    manager.recordAccess("d");
+
+    manager.setQuota(25);
+    assertEquals(Arrays.asList("c", "a"), manager.enforce());
+    assertEquals(Arrays.asList("b", "d"), clones);
+
+    // the quota is met now
+    assertEquals(0, manager.enforce().size());
+  }
+
+}
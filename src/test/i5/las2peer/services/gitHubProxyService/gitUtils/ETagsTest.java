@@ -0,0 +1,47 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+
+/**
+ * Tests the entity tags derived from object ids by {@link ETags}
+ */
+public class ETagsTest {
+
+  private static final ObjectId FIRST =
+      ObjectId.fromString("0123456789012345678901234567890123456789");
+  private static final ObjectId SECOND =
+      ObjectId.fromString("9876543210987654321098765432109876543210");
+
+  /**
+   * Entity tags must only change if one of the objects changes
+   */
+  @Test
+  public void derivesTagsFromObjectIds() {
+    assertEquals("\"0123456789012345678901234567890123456789\"", ETags.of(FIRST));
+    assertEquals(ETags.of(FIRST, SECOND), ETags.of(FIRST, SECOND));
+    assertNotEquals(ETags.of(FIRST, SECOND), ETags.of(SECOND, FIRST));
+    assertNotEquals(ETags.of(FIRST, null), ETags.of(FIRST, SECOND));
+  }
+
+  /**
+   * If-None-Match headers must be compared weakly and may contain several tags
+   */
+  @Test
+  public void matchesIfNoneMatchHeaders() {
+    String etag = ETags.of(FIRST);
+    assertTrue(ETags.matches(etag, etag));
+    assertTrue(ETags.matches("W/" + etag, etag));
+    assertTrue(ETags.matches(ETags.of(SECOND) + ", " + etag, etag));
+    assertTrue(ETags.matches("*", etag));
+    assertFalse(ETags.matches(ETags.of(SECOND), etag));
+    assertFalse(ETags.matches(null, etag));
+    assertFalse(ETags.matches("", etag));
+  }
+
+}
@@ -0,0 +1,69 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the adaptive fetch intervals of the {@link FetchScheduler}
+ */
+public class FetchSchedulerTest {
+
+  /**
+   * Unused repositories must be fetched less often, used ones more often again
+   */
+  @Test
+  public void adaptsIntervalsToAccesses() throws Exception {
+    final AtomicInteger fetches = new AtomicInteger();
+    FetchScheduler scheduler =
+        new FetchScheduler(repositoryName -> fetches.incrementAndGet(), 10, 40, 60000, 0);
+
+    scheduler.recordAccess("repo");
+    scheduler.runDueFetches();
+    assertEquals(0, fetches.get());
+
+    Thread.sleep(15);
+    scheduler.runDueFetches();
+    assertEquals(1, fetches.get());
+    // accessed before the fetch
+    assertEquals(10, scheduler.getInterval("repo"));
+
+    Thread.sleep(15);
+    scheduler.runDueFetches();
+    assertEquals(2, fetches.get());
+    assertEquals(20, scheduler.getInterval("repo"));
+
+    Thread.sleep(25);
+    scheduler.runDueFetches();
+    assertEquals(40, scheduler.getInterval("repo"));
+
+    Thread.sleep(45);
+    scheduler.runDueFetches();
+    assertEquals(40, scheduler.getInterval("repo"));
+
+    scheduler.recordAccess("repo");
+    Thread.sleep(45);
+    scheduler.runDueFetches();
+    assertEquals(20, scheduler.getInterval("repo"));
+    assertEquals(5, fetches.get());
+  }
+
+  /**
+   * Repositories that are not used any more must not be fetched any more
+   */
+  @Test
+  public void dropsIdleRepositories() throws Exception {
+    final AtomicInteger fetches = new AtomicInteger();
+    FetchScheduler scheduler =
+        new FetchScheduler(repositoryName -> fetches.incrementAndGet(), 10, 10, 5, 0);
+
+    scheduler.recordAccess("repo");
+    Thread.sleep(15);
+    scheduler.runDueFetches();
+    assertEquals(1, fetches.get());
+    assertEquals(-1, scheduler.getInterval("repo"));
+  }
+
+}
@@ -0,0 +1,189 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import i5.las2peer.services.gitHubProxyService.metrics.MetricsRegistry;
+
+/**
+ * Tests concurrent clones of the same repository by the {@link GitHelper}
+ */
+public class GitHelperCloneTest {
+
+  private static final int THREADS = 8;
+
+  private File directory;
+  private File root;
+  private String repositoryName;
+
+  @Before
+  public void createRemote() throws Exception {
+    directory = Files.createTempDirectory("gitHelperCloneTest").toFile();
+    root = new File(directory, "local");
+    repositoryName = "component-" + UUID.randomUUID();
+
+    // enough incompressible content, so that the clone is still running when the waiters arrive
+    File work = new File(directory, "work");
+    Random random = new Random(0);
+    try (Git git = Git.init().setDirectory(work).call()) {
+      for (int i = 0; i < 200; i++) {
+        byte[] content = new byte[16 * 1024];
+        random.nextBytes(content);
+        Files.write(new File(work, "file" + i).toPath(), content);
+      }
+      git.add().addFilepattern(".").call();
+      git.commit().setAuthor("test", "test@example.org").setMessage("init").call();
+    }
+    Git.cloneRepository().setBare(true).setURI(work.toURI().toString())
+        .setDirectory(new File(directory, "remote/organization/" + repositoryName + ".git")).call()
+        .close();
+
+    GitHelper.configureBaseUrl(new File(directory, "remote").toURI().toString());
+    GitHelper.configureRepositoryRoot(root.getPath());
+    GitHelper.configureCloning(300, GitHelper.CloneMode.FULL);
+  }
+
+  @After
+  public void deleteRemote() throws Exception {
+    GitHelper.invalidateRepository(repositoryName);
+    GitHelper.configureBaseUrl(null);
+    GitHelper.configureRepositoryRoot("");
+    FileUtils.deleteDirectory(directory);
+  }
+
+  private static long clones() {
+    return MetricsRegistry.getInstance()
+        .getHistogram("githubproxy_git_operation_duration_seconds", "operation", "clone")
+        .getCount();
+  }
+
+  private List<Future<File>> openConcurrently() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<File>> results = new ArrayList<Future<File>>();
+    for (int i = 0; i < THREADS; i++) {
+      results.add(executor.submit(new Callable<File>() {
+        @Override
+        public File call() throws Exception {
+          start.await();
+          try (Git git = GitHelper.getLocalGit(repositoryName, "organization")) {
+            assertNotNull(git.getRepository().resolve(Constants.HEAD));
+            return git.getRepository().getDirectory().getCanonicalFile();
+          }
+        }
+      }));
+    }
+    start.countDown();
+    executor.shutdown();
+    return results;
+  }
+
+  private List<String> tempDirectories() {
+    List<String> names = new ArrayList<String>();
+    String prefix = "." + repositoryName + ".clone-";
+    String[] files = root.list();
+    for (String name : files != null ? files : new String[0]) {
+      if (name.startsWith(prefix)) {
+        names.add(name);
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Concurrent requests must clone the repository once and all open the finished clone
+   */
+  @Test
+  public void clonesOnce() throws Exception {
+    long clones = clones();
+    File expected = new File(new File(root, repositoryName), ".git").getCanonicalFile();
+    for (Future<File> result : openConcurrently()) {
+      assertEquals(expected, result.get());
+    }
+    assertEquals(1, clones() - clones);
+    assertEquals(0, tempDirectories().size());
+  }
+
+  /**
+   * The error of a failed clone must be passed to all waiting requests, and the partial clone must
+   * be removed
+   */
+  @Test
+  public void passesCloneErrorToWaiters() throws Exception {
+    // leftovers in the final location let the clone fail when it is moved there
+    File localPath = new File(root, repositoryName);
+    localPath.mkdirs();
+    Files.write(new File(localPath, "leftover").toPath(), new byte[] {1});
+
+    Throwable error = null;
+    for (Future<File> result : openConcurrently()) {
+      try {
+        result.get();
+        fail("clone succeeded");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof IOException);
+        // the waiters rethrow the error of the single clone instead of cloning themselves
+        if (error == null) {
+          error = e.getCause();
+        }
+        assertSame(error, e.getCause());
+      }
+    }
+    assertEquals(0, tempDirectories().size());
+  }
+
+  /**
+   * A repository missing on the git server must be reported as not found
+   */
+  @SuppressWarnings("try")
+  @Test
+  public void reportsMissingRemotes() throws Exception {
+    try (Git git = GitHelper.getLocalGit(repositoryName + "-missing", "organization")) {
+      fail("missing repository cloned");
+    } catch (FileNotFoundException e) {
+      // expected
+    }
+  }
+
+  /**
+   * A clone taking longer than the clone timeout must be aborted
+   */
+  @SuppressWarnings("try")
+  @Test
+  public void abortsSlowClones() throws Exception {
+    GitHelper.configureCloning(0, GitHelper.CloneMode.FULL);
+    try (Git git = GitHelper.getLocalGit(repositoryName, "organization")) {
+      fail("clone did not time out");
+    } catch (IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("did not finish"));
+    }
+    assertEquals(0, tempDirectories().size());
+    assertTrue(!new File(root, repositoryName + "/.git").exists());
+  }
+
+}
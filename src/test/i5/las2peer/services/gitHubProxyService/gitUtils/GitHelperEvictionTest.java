@@ -0,0 +1,114 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link GitHelper} only evicts local clones without unpushed changes
+ */
+public class GitHelperEvictionTest {
+
+  private File directory;
+  private File root;
+  private String repositoryName;
+
+  @Before
+  public void createClone() throws Exception {
+    directory = Files.createTempDirectory("gitHelperEvictionTest").toFile();
+    root = new File(directory, "local");
+    repositoryName = "component-" + UUID.randomUUID();
+
+    File work = new File(directory, "work");
+    try (Git git = Git.init().setDirectory(work).call()) {
+      Files.write(new File(work, "widget.xml").toPath(),
+          "<widget/>".getBytes(StandardCharsets.UTF_8));
+      git.add().addFilepattern("widget.xml").call();
+      git.commit().setAuthor("test", "test@example.org").setMessage("init").call();
+    }
+    Git.cloneRepository().setBare(true).setURI(work.toURI().toString())
+        .setDirectory(new File(directory, "remote/organization/" + repositoryName + ".git")).call()
+        .close();
+
+    GitHelper.configureBaseUrl(new File(directory, "remote").toURI().toString());
+    GitHelper.configureRepositoryRoot(root.getPath());
+    GitHelper.getLocalGit(repositoryName, "organization", "development").close();
+  }
+
+  @After
+  public void deleteClone() throws Exception {
+    GitHelper.invalidateRepository(repositoryName);
+    GitHelper.configureBaseUrl(null);
+    GitHelper.configureRepositoryRoot("");
+    FileUtils.deleteDirectory(directory);
+  }
+
+  private boolean cloned() {
+    return new File(root, repositoryName + "/.git").exists();
+  }
+
+  /**
+   * A clone whose changes are all pushed must be evicted
+   */
+  @Test
+  public void evictsPushedClones() throws Exception {
+    assertTrue(GitHelper.evictLocalRepository(repositoryName));
+    assertFalse(cloned());
+  }
+
+  /**
+   * A background fetch of an evicted clone must not clone it again
+   */
+  @Test
+  public void doesNotFetchEvictedClones() throws Exception {
+    assertTrue(GitHelper.evictLocalRepository(repositoryName));
+    GitHelper.fetchRepository(repositoryName);
+    assertFalse(cloned());
+  }
+
+  /**
+   * A clone in use must not be evicted
+   */
+  @SuppressWarnings("try")
+  @Test
+  public void keepsClonesInUse() throws Exception {
+    try (Git git = GitHelper.getLocalGit(repositoryName, "organization")) {
+      assertFalse(GitHelper.evictLocalRepository(repositoryName));
+    }
+    assertTrue(cloned());
+  }
+
+  /**
+   * A clone with a commit that was not pushed must not be evicted
+   */
+  @Test
+  public void keepsUnpushedCommits() throws Exception {
+    try (Git git = GitHelper.getLocalGit(repositoryName, "organization", "development")) {
+      new MultiFileCommit().addFile("widget.xml", "<widget>new</widget>".getBytes("utf-8"))
+          .commit(git, "test", "test@example.org", "change widget");
+    }
+    assertFalse(GitHelper.evictLocalRepository(repositoryName));
+    assertTrue(cloned());
+  }
+
+  /**
+   * A clone with a rename that is only staged for the next commit must not be evicted
+   */
+  @Test
+  public void keepsStagedRenames() throws Exception {
+    GitHelper.renameFile(repositoryName, "organization", "app.xml", "widget.xml", null);
+    assertFalse(GitHelper.evictLocalRepository(repositoryName));
+    assertTrue(cloned());
+  }
+
+}
@@ -0,0 +1,60 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests the garbage collection of written repositories by the {@link MaintenanceScheduler}
+ */
+public class MaintenanceSchedulerTest {
+
+  /**
+   * Only written repositories exceeding a threshold must be collected
+   */
+  @Test
+  public void collectsRepositoriesExceedingThresholds() {
+    final Map<String, MaintenanceScheduler.Statistics> statistics =
+        new HashMap<String, MaintenanceScheduler.Statistics>();
+    statistics.put("loose", new MaintenanceScheduler.Statistics(50, 1));
+    statistics.put("packs", new MaintenanceScheduler.Statistics(0, 5));
+    statistics.put("small", new MaintenanceScheduler.Statistics(5, 1));
+    statistics.put("unwritten", new MaintenanceScheduler.Statistics(50, 5));
+
+    MaintenanceScheduler scheduler =
+        new MaintenanceScheduler(new MaintenanceScheduler.Maintenance() {
+          @Override
+          public MaintenanceScheduler.Statistics getStatistics(String repositoryName) {
+            return statistics.get(repositoryName);
+          }
+
+          @Override
+          public void collectGarbage(String repositoryName) {
+            statistics.put(repositoryName, new MaintenanceScheduler.Statistics(0, 1));
+          }
+        }, 10, 2);
+
+    scheduler.recordWrite("loose");
+    scheduler.recordWrite("packs");
+    scheduler.recordWrite("small");
+
+    assertEquals(new HashSet<String>(Arrays.asList("loose", "packs")),
+        new HashSet<String>(scheduler.runMaintenance()));
+    assertEquals(2, scheduler.getRuns());
+    assertEquals(5, scheduler.getLooseObjects());
+    assertEquals(3, scheduler.getPackFiles());
+
+    // nothing was written since the last check
+    assertEquals(Collections.emptyList(), scheduler.runMaintenance());
+
+    scheduler.remove("small");
+    assertEquals(0, scheduler.getLooseObjects());
+  }
+
+}
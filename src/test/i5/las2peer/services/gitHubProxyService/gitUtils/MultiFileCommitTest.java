@@ -0,0 +1,129 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests committing several files at once with a {@link MultiFileCommit}
+ */
+public class MultiFileCommitTest {
+
+  private File directory;
+  private Git git;
+
+  @Before
+  public void createRepository() throws Exception {
+    directory = Files.createTempDirectory("multiFileCommitTest").toFile();
+    git = Git.init().setDirectory(directory).call();
+    Files.write(new File(directory, "widget.xml").toPath(),
+        "<widget/>".getBytes(StandardCharsets.UTF_8));
+    git.add().addFilepattern("widget.xml").call();
+    git.commit().setAuthor("test", "test@example.org").setMessage("init").call();
+  }
+
+  @After
+  public void deleteRepository() throws Exception {
+    git.close();
+    GitHelper.invalidateRepository(directory.getName());
+    GitHelper.configureRepositoryRoot("");
+    FileUtils.deleteDirectory(directory);
+  }
+
+  private String read(String fileName) throws Exception {
+    return GitHelper.getFileContent(git.getRepository(), fileName);
+  }
+
+  /**
+   * All files must end up in a single commit, without being written to the working tree
+   */
+  @Test
+  public void commitsAllFilesAtOnce() throws Exception {
+    new MultiFileCommit().addFile("widget.xml", "<widget>new</widget>".getBytes("utf-8"))
+        .addFile("traces/widget.xml.traces", "{}".getBytes("utf-8"))
+        .commit(git, "test", "test@example.org", "store files");
+
+    assertEquals("<widget>new</widget>", read("widget.xml"));
+    assertEquals("{}", read("traces/widget.xml.traces"));
+    assertEquals(2, count(git.log().call()));
+    assertFalse(new File(directory, "traces/widget.xml.traces").exists());
+  }
+
+  /**
+   * A branch moved since the parent was resolved must not be overwritten, and the index must only
+   * be written after the branch was moved
+   */
+  @Test
+  public void rejectsMovedBranch() throws Exception {
+    ObjectId parentId = git.getRepository().resolve(Constants.HEAD);
+    ObjectId concurrentId = new MultiFileCommit()
+        .addFile("widget.xml", "<widget>concurrent</widget>".getBytes("utf-8"))
+        .commit(git, "test", "test@example.org", "concurrent change");
+
+    try {
+      new MultiFileCommit().addFile("app.js", "app".getBytes("utf-8"))
+          .commit(git.getRepository(), parentId, "test", "test@example.org", "stale change");
+      fail("moved branch overwritten");
+    } catch (IOException e) {
+      // expected
+    }
+    assertEquals(concurrentId, git.getRepository().resolve(Constants.HEAD));
+    DirCache index = DirCache.read(git.getRepository());
+    RevTree tree = GitHelper.getHeadTree(git.getRepository());
+    assertEquals(-1, index.findEntry("app.js"));
+    assertEquals(GitHelper.getBlobId(git.getRepository(), tree, "widget.xml"),
+        index.getEntry("widget.xml").getObjectId());
+  }
+
+  /**
+   * Renames and deletions staged in the index must be part of the next commit
+   */
+  @Test
+  public void commitsStagedRenamesAndDeletions() throws Exception {
+    new MultiFileCommit().addFile("js/app.js", "app".getBytes("utf-8"))
+        .commit(git, "test", "test@example.org", "add app");
+    String repositoryName = directory.getName();
+    GitHelper.configureRepositoryRoot(directory.getParent());
+
+    GitHelper.renameFile(repositoryName, null, "app.xml", "widget.xml", null);
+    GitHelper.deleteFile(repositoryName, null, "js/app.js", null);
+    try (Git development = GitHelper.getLocalGit(repositoryName, null, "development")) {
+      new MultiFileCommit().addFile("README.md", "readme".getBytes("utf-8"))
+          .commit(development, "test", "test@example.org", "store files");
+
+      RevTree tree = GitHelper.getHeadTree(development.getRepository());
+      assertEquals("<widget/>", GitHelper.getBlobContent(development.getRepository(),
+          GitHelper.getBlobId(development.getRepository(), tree, "app.xml")));
+      assertNull(GitHelper.getBlobId(development.getRepository(), tree, "widget.xml"));
+      assertNull(GitHelper.getBlobId(development.getRepository(), tree, "js/app.js"));
+      assertTrue(GitHelper.getBlobId(development.getRepository(), tree, "README.md") != null);
+    }
+  }
+
+  private static int count(Iterable<?> iterable) {
+    int count = 0;
+    for (@SuppressWarnings("unused")
+    Object item : iterable) {
+      count++;
+    }
+    return count;
+  }
+
+}
@@ -0,0 +1,109 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the coalescing and retrying of pushes by the {@link PushScheduler}
+ */
+public class PushSchedulerTest {
+
+  private static void awaitState(PushScheduler scheduler, String pushId,
+      PushScheduler.State state) throws InterruptedException {
+    for (int i = 0; i < 200 && scheduler.getPush(pushId).getState() != state; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(state, scheduler.getPush(pushId).getState());
+  }
+
+  /**
+   * Requests arriving while a push of the same repository is waiting must share that push
+   */
+  @Test
+  public void coalescesPendingPushes() throws Exception {
+    final CountDownLatch blocker = new CountDownLatch(1);
+    final AtomicInteger pushes = new AtomicInteger();
+    PushScheduler scheduler = new PushScheduler(repositoryName -> {
+      if (repositoryName.equals("blocker")) {
+        blocker.await(5, TimeUnit.SECONDS);
+      } else {
+        pushes.incrementAndGet();
+      }
+    }, 1, 1, 0);
+
+    // occupy the only thread, so that the following pushes stay pending
+    String blockerId = scheduler.submit("blocker");
+    String first = scheduler.submit("repo");
+    String second = scheduler.submit("repo");
+    assertSame(scheduler.getPush(first), scheduler.getPush(second));
+
+    blocker.countDown();
+    awaitState(scheduler, blockerId, PushScheduler.State.DONE);
+    awaitState(scheduler, second, PushScheduler.State.DONE);
+    assertEquals(1, pushes.get());
+    scheduler.shutdown();
+  }
+
+  /**
+   * Failing pushes must be retried until the maximum number of attempts is reached
+   */
+  @Test
+  public void retriesFailedPushes() throws Exception {
+    final AtomicInteger attempts = new AtomicInteger();
+    PushScheduler scheduler = new PushScheduler(repositoryName -> {
+      if (attempts.incrementAndGet() < 3) {
+        throw new Exception("remote not reachable");
+      }
+    }, 1, 3, 1);
+
+    String pushId = scheduler.submit("repo");
+    awaitState(scheduler, pushId, PushScheduler.State.DONE);
+    assertEquals(3, scheduler.getPush(pushId).getAttempts(pushId));
+
+    PushScheduler failing = new PushScheduler(repositoryName -> {
+      throw new Exception("remote not reachable");
+    }, 1, 2, 1);
+    pushId = failing.submit("repo");
+    awaitState(failing, pushId, PushScheduler.State.FAILED);
+    assertEquals("remote not reachable", failing.getPush(pushId).getError());
+
+    scheduler.shutdown();
+    failing.shutdown();
+  }
+
+  /**
+   * A request joining a retry must not be failed by the attempts made before it arrived
+   */
+  @Test
+  public void countsAttemptsPerRequest() throws Exception {
+    final AtomicInteger attempts = new AtomicInteger();
+    PushScheduler scheduler = new PushScheduler(repositoryName -> {
+      if (attempts.incrementAndGet() < 3) {
+        throw new Exception("remote not reachable");
+      }
+    }, 1, 2, 200);
+
+    String first = scheduler.submit("repo");
+    // wait for the retry of the first attempt
+    for (int i = 0; i < 200 && (scheduler.getPush(first).getAttempts(first) < 1
+        || scheduler.getPush(first).getState() != PushScheduler.State.PENDING); i++) {
+      Thread.sleep(5);
+    }
+    String second = scheduler.submit("repo");
+    assertSame(scheduler.getPush(first), scheduler.getPush(second));
+
+    awaitState(scheduler, first, PushScheduler.State.FAILED);
+    awaitState(scheduler, second, PushScheduler.State.DONE);
+    assertEquals(2, scheduler.getPush(first).getAttempts(first));
+    assertEquals(2, scheduler.getPush(second).getAttempts(second));
+    assertEquals(3, attempts.get());
+    scheduler.shutdown();
+  }
+
+}
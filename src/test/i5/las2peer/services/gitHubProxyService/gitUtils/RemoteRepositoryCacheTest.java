@@ -0,0 +1,121 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.errors.NoRemoteRepositoryException;
+import org.eclipse.jgit.errors.TransportException;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.transport.URIish;
+import org.junit.Test;
+
+/**
+ * Tests the caching of remote repository listings by the {@link RemoteRepositoryCache}
+ */
+public class RemoteRepositoryCacheTest {
+
+  /**
+   * Existing and missing repositories must be cached until they expire or are invalidated
+   */
+  @Test
+  public void cachesExistingAndMissingRepositories() throws Exception {
+    final AtomicInteger listings = new AtomicInteger();
+    RemoteRepositoryCache cache = new RemoteRepositoryCache(url -> {
+      listings.incrementAndGet();
+      if (url.equals("missing")) {
+        throw new NoRemoteRepositoryException(new URIish(url), "not found");
+      }
+      return Collections.<Ref>emptyList();
+    }, 60000, 50);
+
+    assertTrue(cache.exists("existing"));
+    assertTrue(cache.exists("existing"));
+    assertFalse(cache.exists("missing"));
+    assertFalse(cache.exists("missing"));
+    assertEquals(2, listings.get());
+
+    // only the missing repository expired
+    Thread.sleep(100);
+    assertTrue(cache.exists("existing"));
+    assertFalse(cache.exists("missing"));
+    assertEquals(3, listings.get());
+
+    cache.invalidate("existing");
+    assertTrue(cache.exists("existing"));
+    assertEquals(4, listings.get());
+  }
+
+  /**
+   * Concurrent checks of the same repository must share a single listing
+   */
+  @Test
+  public void sharesConcurrentListings() throws Exception {
+    final AtomicInteger listings = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final RemoteRepositoryCache cache = new RemoteRepositoryCache(url -> {
+      listings.incrementAndGet();
+      started.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      throw new NoRemoteRepositoryException(new URIish(url), "not found");
+    }, 60000, 60000);
+
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread = new Thread(() -> {
+        try {
+          cache.exists("component");
+        } catch (IOException e) {
+          throw new AssertionError(e);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+      if (i == 0) {
+        started.await(5, TimeUnit.SECONDS);
+      }
+    }
+    release.countDown();
+    for (Thread thread : threads) {
+      thread.join(5000);
+    }
+
+    assertEquals(1, listings.get());
+  }
+
+  /**
+   * Errors other than a missing repository must neither be cached nor reported as missing
+   */
+  @Test
+  public void doesNotCacheTransientErrors() throws Exception {
+    final AtomicInteger listings = new AtomicInteger();
+    RemoteRepositoryCache cache = new RemoteRepositoryCache(url -> {
+      if (listings.incrementAndGet() == 1) {
+        // wrapped like the errors of the ls remote command
+        throw new org.eclipse.jgit.api.errors.TransportException("failed",
+            new TransportException("connection reset"));
+      }
+      return Collections.<Ref>emptyList();
+    }, 60000, 60000);
+
+    try {
+      cache.exists("component");
+      fail("transient error reported as missing repository");
+    } catch (IOException e) {
+      // expected
+    }
+    assertTrue(cache.exists("component"));
+    assertEquals(2, listings.get());
+  }
+
+}
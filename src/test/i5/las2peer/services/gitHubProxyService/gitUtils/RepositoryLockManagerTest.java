@@ -0,0 +1,63 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Tests the locks of the {@link RepositoryLockManager}
+ */
+public class RepositoryLockManagerTest {
+
+  /**
+   * The lock of a repository must be dropped once it is no longer held, also after reentrant use
+   */
+  @SuppressWarnings("try")
+  @Test
+  public void dropsReleasedLocks() {
+    RepositoryLockManager lockManager = new RepositoryLockManager();
+    try (RepositoryLockManager.LockHandle lock = lockManager.lockForWriting("first")) {
+      try (RepositoryLockManager.LockHandle reentered = lockManager.lockForWriting("first");
+          RepositoryLockManager.LockHandle other = lockManager.lockForWriting("second")) {
+        assertEquals(2, lockManager.size());
+      }
+      assertEquals(1, lockManager.size());
+    }
+    assertEquals(0, lockManager.size());
+  }
+
+  /**
+   * A waiting writer must keep the lock of the repository until it acquired and released it
+   */
+  @SuppressWarnings("try")
+  @Test
+  public void serializesWriters() throws Exception {
+    final RepositoryLockManager lockManager = new RepositoryLockManager();
+    final CountDownLatch started = new CountDownLatch(1);
+    final AtomicBoolean released = new AtomicBoolean(false);
+    final AtomicBoolean exclusive = new AtomicBoolean(false);
+    Thread waiter;
+    try (RepositoryLockManager.LockHandle lock = lockManager.lockForWriting("repo")) {
+      waiter = new Thread(() -> {
+        started.countDown();
+        try (RepositoryLockManager.LockHandle waiting = lockManager.lockForWriting("repo")) {
+          exclusive.set(released.get());
+        }
+      });
+      waiter.start();
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      Thread.sleep(50);
+      released.set(true);
+    }
+    waiter.join(5000);
+
+    assertTrue(exclusive.get());
+    assertEquals(0, lockManager.size());
+  }
+
+}
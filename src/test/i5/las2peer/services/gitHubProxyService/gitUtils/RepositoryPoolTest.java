@@ -0,0 +1,152 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.Test;
+
+/**
+ * Tests the reference counting and eviction of the {@link RepositoryPool}
+ */
+public class RepositoryPoolTest {
+
+  private final AtomicInteger opened = new AtomicInteger();
+
+  private Callable<Repository> opener(final String name) {
+    return () -> {
+      opened.incrementAndGet();
+      return new InMemoryRepository(new DfsRepositoryDescription(name));
+    };
+  }
+
+  /**
+   * A released repository must be reused by the next request instead of being opened again
+   */
+  @Test
+  public void reusesReleasedRepository() throws Exception {
+    RepositoryPool pool = new RepositoryPool(4, 60000);
+
+    RepositoryPool.Entry first = pool.acquire("repo", opener("repo"));
+    pool.release(first);
+    RepositoryPool.Entry second = pool.acquire("repo", opener("repo"));
+    pool.release(second);
+
+    assertSame(first.getRepository(), second.getRepository());
+    assertEquals(1, opened.get());
+    assertEquals(1, pool.size());
+  }
+
+  /**
+   * Unused repositories must be evicted in least recently used order if the bound is exceeded,
+   * while repositories in use are kept open
+   */
+  @Test
+  public void evictsLeastRecentlyUsedRepository() throws Exception {
+    RepositoryPool pool = new RepositoryPool(2, 60000);
+
+    RepositoryPool.Entry inUse = pool.acquire("a", opener("a"));
+    pool.release(pool.acquire("b", opener("b")));
+    pool.release(pool.acquire("c", opener("c")));
+
+    assertEquals(2, pool.size());
+    // "b" was evicted, so it has to be opened again
+    pool.release(pool.acquire("b", opener("b")));
+    assertEquals(4, opened.get());
+    // "a" is still in use and must not have been evicted
+    assertSame(inUse, pool.acquire("a", opener("a")));
+    assertEquals(4, opened.get());
+  }
+
+  /**
+   * Repositories that were not used within the idle timeout must be closed
+   */
+  @Test
+  public void evictsIdleRepositories() throws Exception {
+    RepositoryPool pool = new RepositoryPool(4, 0);
+
+    pool.release(pool.acquire("repo", opener("repo")));
+    Thread.sleep(5);
+    pool.evictIdle();
+
+    assertEquals(0, pool.size());
+  }
+
+  /**
+   * Idle repositories must also be closed if the pool is not accessed anymore
+   */
+  @Test
+  public void evictsIdleRepositoriesInBackground() throws Exception {
+    RepositoryPool pool = new RepositoryPool(4, 0);
+    pool.release(pool.acquire("repo", opener("repo")));
+
+    pool.startEviction(10);
+    try {
+      long deadline = System.currentTimeMillis() + 5000;
+      while (pool.size() > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    assertEquals(0, pool.size());
+  }
+
+  /**
+   * A repository in use must not be removed
+   */
+  @Test
+  public void keepsRepositoriesInUse() throws Exception {
+    RepositoryPool pool = new RepositoryPool(4, 60000);
+    RepositoryPool.Entry inUse = pool.acquire("repo", opener("repo"));
+
+    assertFalse(pool.removeIfUnused("repo", () -> {
+      throw new AssertionError("repository in use removed");
+    }));
+    pool.release(inUse);
+    assertTrue(pool.removeIfUnused("repo", () -> true));
+    assertEquals(0, pool.size());
+  }
+
+  /**
+   * Acquisitions during a removal must wait for it and open the repository again
+   */
+  @Test
+  public void awaitsRemovals() throws Exception {
+    final RepositoryPool pool = new RepositoryPool(4, 60000);
+    final RepositoryPool.Entry removed = pool.acquire("repo", opener("repo"));
+    pool.release(removed);
+    final CompletableFuture<RepositoryPool.Entry> acquired =
+        new CompletableFuture<RepositoryPool.Entry>();
+
+    assertTrue(pool.removeIfUnused("repo", () -> {
+      new Thread(() -> {
+        try {
+          acquired.complete(pool.acquire("repo", opener("repo")));
+        } catch (Exception e) {
+          acquired.completeExceptionally(e);
+        }
+      }).start();
+      Thread.sleep(100);
+      assertFalse(acquired.isDone());
+      return true;
+    }));
+
+    RepositoryPool.Entry reopened = acquired.get(5, TimeUnit.SECONDS);
+    assertNotSame(removed.getRepository(), reopened.getRepository());
+    assertEquals(2, opened.get());
+    pool.release(reopened);
+  }
+
+}
@@ -0,0 +1,96 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+/**
+ * Tests the background warmup of repositories by the {@link RepositoryWarmup}
+ */
+public class RepositoryWarmupTest {
+
+  /**
+   * All repositories must be warmed up, with failures recorded per repository
+   */
+  @Test
+  public void warmsUpAllRepositories() throws Exception {
+    final Set<String> warmedUp = ConcurrentHashMap.newKeySet();
+    RepositoryWarmup warmup = new RepositoryWarmup();
+    warmup.start(Arrays.asList("first", "second", "missing"), repositoryName -> {
+      if (repositoryName.equals("missing")) {
+        throw new FileNotFoundException("missing not found");
+      }
+      warmedUp.add(repositoryName);
+    }, 2);
+
+    for (int i = 0; i < 200 && warmup.getState() != RepositoryWarmup.State.DONE; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(RepositoryWarmup.State.DONE, warmup.getState());
+    assertEquals(3, warmup.getFinished());
+    assertEquals(2, warmedUp.size());
+    assertEquals(RepositoryWarmup.State.DONE, warmup.getRepositoryStates().get("first"));
+    assertEquals(RepositoryWarmup.State.FAILED, warmup.getRepositoryStates().get("missing"));
+    assertEquals("missing not found", warmup.getErrors().get("missing"));
+  }
+
+  /**
+   * A warmup failing with an error must still finish
+   */
+  @Test
+  public void finishesAfterErrors() throws Exception {
+    RepositoryWarmup warmup = new RepositoryWarmup();
+    warmup.start(Arrays.asList("first", "broken"), repositoryName -> {
+      if (repositoryName.equals("broken")) {
+        throw new StackOverflowError("broken");
+      }
+    }, 1);
+
+    for (int i = 0; i < 200 && warmup.getState() != RepositoryWarmup.State.DONE; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(RepositoryWarmup.State.DONE, warmup.getState());
+    assertEquals(2, warmup.getFinished());
+    assertEquals(RepositoryWarmup.State.FAILED, warmup.getRepositoryStates().get("broken"));
+  }
+
+  /**
+   * Repositories must not be warmed up any more once the warmup was shut down
+   */
+  @Test
+  public void stopsOnShutdown() throws Exception {
+    final Set<String> started = ConcurrentHashMap.newKeySet();
+    RepositoryWarmup warmup = new RepositoryWarmup();
+    warmup.start(Arrays.asList("first", "second", "third"), repositoryName -> {
+      started.add(repositoryName);
+      Thread.sleep(10000);
+    }, 1);
+    for (int i = 0; i < 200 && started.isEmpty(); i++) {
+      Thread.sleep(10);
+    }
+
+    warmup.shutdown();
+    Thread.sleep(100);
+    assertEquals(1, started.size());
+    assertEquals(RepositoryWarmup.State.FAILED, warmup.getRepositoryStates().get("first"));
+    assertEquals(RepositoryWarmup.State.PENDING, warmup.getRepositoryStates().get("third"));
+  }
+
+  /**
+   * A warmup without repositories is done immediately
+   */
+  @Test
+  public void finishesWithoutRepositories() {
+    RepositoryWarmup warmup = new RepositoryWarmup();
+    warmup.start(Collections.<String>emptyList(), repositoryName -> {
+    }, 2);
+    assertEquals(RepositoryWarmup.State.DONE, warmup.getState());
+  }
+
+}
@@ -0,0 +1,118 @@
+package i5.las2peer.services.gitHubProxyService.gitUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the pages and cursors of a {@link TreeListing}
+ */
+public class TreeListingTest {
+
+  private File directory;
+  private Git git;
+  private RevTree tree;
+
+  @Before
+  public void createRepository() throws Exception {
+    directory = Files.createTempDirectory("treeListingTest").toFile();
+    git = Git.init().setDirectory(directory).call();
+    for (String fileName : Arrays.asList("widget.xml", "js/app.js", "js/lib/util.js",
+        "js.txt", "traces/widget.xml.traces")) {
+      File file = new File(directory, fileName);
+      file.getParentFile().mkdirs();
+      Files.write(file.toPath(), fileName.getBytes(StandardCharsets.UTF_8));
+      git.add().addFilepattern(fileName).call();
+    }
+    git.commit().setAuthor("test", "test@example.org").setMessage("init").call();
+    tree = GitHelper.getHeadTree(git.getRepository());
+  }
+
+  @After
+  public void deleteRepository() throws Exception {
+    git.close();
+    FileUtils.deleteDirectory(directory);
+  }
+
+  private TreeListing build() throws Exception {
+    return TreeListing.build(git.getRepository(), tree,
+        (path, folder) -> !path.equals("traces"));
+  }
+
+  private static List<String> paths(TreeListing.Page page) {
+    List<String> paths = new ArrayList<String>();
+    for (TreeListing.Entry entry : page.getEntries()) {
+      paths.add(entry.getPath());
+    }
+    return paths;
+  }
+
+  /**
+   * All files and folders must be listed recursively, except the filtered ones
+   */
+  @Test
+  public void listsRecursively() throws Exception {
+    TreeListing listing = build();
+    TreeListing.Page page = listing.getPage("", null, 100);
+
+    assertEquals(Arrays.asList("js.txt", "js", "js/app.js", "js/lib", "js/lib/util.js",
+        "widget.xml"), paths(page));
+    assertNull(page.getCursor());
+    TreeListing.Entry file = page.getEntries().get(2);
+    assertEquals("js/app.js".length(), file.getSize());
+    assertEquals(GitHelper.getBlobId(git.getRepository(), tree, "js/app.js"), file.getBlobId());
+    assertNull(page.getEntries().get(1).getBlobId());
+
+    assertEquals(Arrays.asList("js/app.js", "js/lib", "js/lib/util.js"),
+        paths(listing.getPage("js", null, 100)));
+    // like the non recursive listing, filtered and missing folders are empty
+    assertEquals(0, listing.getPage("traces", null, 100).getEntries().size());
+    assertEquals(0, listing.getPage("missing", null, 100).getEntries().size());
+  }
+
+  /**
+   * Following the cursors must yield all entries of a folder exactly once
+   */
+  @Test
+  public void pagesWithCursors() throws Exception {
+    TreeListing listing = build();
+    List<String> paths = new ArrayList<String>();
+    TreeListing.Page page = listing.getPage("js", null, 2);
+    paths.addAll(paths(page));
+    assertEquals(2, page.getEntries().size());
+
+    TreeListing.Cursor cursor = TreeListing.decodeCursor(page.getCursor());
+    assertEquals(tree, cursor.getTreeId());
+    page = listing.getPage("js", cursor, 2);
+    paths.addAll(paths(page));
+    assertNull(page.getCursor());
+    assertEquals(Arrays.asList("js/app.js", "js/lib", "js/lib/util.js"), paths);
+
+    // a cursor of another folder or tree must be rejected
+    for (String foreign : Arrays.asList(TreeListing.encodeCursor(tree, 0),
+        TreeListing.encodeCursor(ObjectId.zeroId(), cursor.getPosition()))) {
+      try {
+        listing.getPage("js", TreeListing.decodeCursor(foreign), 2);
+        fail("foreign cursor accepted");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+}
@@ -0,0 +1,53 @@
+package i5.las2peer.services.gitHubProxyService.jsonUtils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Test;
+
+/**
+ * Tests the json written by the {@link JsonWriter}
+ */
+public class JsonWriterTest {
+
+  /**
+   * Members and elements must be separated by commas, nested at any depth
+   */
+  @Test
+  public void writesNestedStructures() {
+    JsonWriter writer = new JsonWriter().beginObject().name("files").beginArray();
+    writer.beginObject().name("type").value("folder").name("path").value("js").endObject();
+    writer.beginObject().name("type").value("file").name("path").value("js/app.js").endObject();
+    writer.endArray().name("count").value(2).name("complete").value(true).name("id").nullValue();
+    writer.name("raw").rawValue("{\"a\":[]}").name("empty").beginArray().endArray().endObject();
+
+    assertEquals("{\"files\":[{\"type\":\"folder\",\"path\":\"js\"},"
+        + "{\"type\":\"file\",\"path\":\"js/app.js\"}],\"count\":2,\"complete\":true,"
+        + "\"id\":null,\"raw\":{\"a\":[]},\"empty\":[]}", writer.toString());
+  }
+
+  /**
+   * Strings must be escaped, so that parsing them yields the original value
+   */
+  @Test
+  public void escapesStrings() throws Exception {
+    String value = "quote \" backslash \\ slash / newline \n tab \t bell \u0007 "
+        + "separator \u2028 umlaut \u00fc";
+    JsonWriter writer = new JsonWriter().beginArray().value(value);
+    writer.beginString().append("YWJj");
+    writer.endString().endArray();
+
+    JSONArray parsed = (JSONArray) new JSONParser().parse(writer.toString());
+    assertEquals(value, parsed.get(0));
+    assertEquals("YWJj", parsed.get(1));
+    assertEquals("[\"a\\\\b\\u0007\"]", new JsonWriter().beginArray().value("a\\b\u0007")
+        .endArray().toString());
+    assertEquals(value,
+        ((JSONObject) new JSONParser()
+            .parse(new JsonWriter().beginObject().name(value).value(1).endObject().toString()))
+                .keySet().iterator().next());
+  }
+
+}
@@ -0,0 +1,75 @@
+package i5.las2peer.services.gitHubProxyService.metrics;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+/**
+ * Tests the Prometheus text export of the {@link MetricsRegistry}
+ */
+public class MetricsRegistryTest {
+
+  /**
+   * Histograms must be exported with cumulative buckets, sum and count per series
+   */
+  @SuppressWarnings("try")
+  @Test
+  public void exportsHistograms() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.describeHistogram("test_duration_seconds", "Duration of tests");
+    registry.getHistogram("test_duration_seconds", "operation", "read").observe(0.003);
+    registry.getHistogram("test_duration_seconds", "operation", "read").observe(2);
+    try (MetricsRegistry.Timer timer = registry.startTimer("test_duration_seconds", "operation",
+        "write")) {
+      // measures next to nothing
+    }
+
+    String text = registry.toPrometheusText();
+    assertTrue(text.contains("# HELP test_duration_seconds Duration of tests\n"));
+    assertTrue(text.contains("# TYPE test_duration_seconds histogram\n"));
+    assertTrue(text.contains("test_duration_seconds_bucket{operation=\"read\",le=\"0.0025\"} 0\n"));
+    assertTrue(text.contains("test_duration_seconds_bucket{operation=\"read\",le=\"0.005\"} 1\n"));
+    assertTrue(text.contains("test_duration_seconds_bucket{operation=\"read\",le=\"+Inf\"} 2\n"));
+    assertTrue(text.contains("test_duration_seconds_sum{operation=\"read\"} 2.003\n"));
+    assertTrue(text.contains("test_duration_seconds_count{operation=\"read\"} 2\n"));
+    assertTrue(text.contains("test_duration_seconds_count{operation=\"write\"} 1\n"));
+  }
+
+  /**
+   * Counters and gauges must be exported with their label values escaped
+   */
+  @Test
+  public void exportsCountersAndGauges() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.increment("test_requests_total", "method", "say \"hi\"");
+    registry.increment("test_requests_total", "method", "say \"hi\"");
+    registry.registerGauge("test_entries", "Number of entries", () -> 42);
+
+    String text = registry.toPrometheusText();
+    assertTrue(text.contains("# TYPE test_requests_total counter\n"));
+    assertTrue(text.contains("test_requests_total{method=\"say \\\"hi\\\"\"} 2\n"));
+    assertTrue(text.contains("# TYPE test_entries gauge\n"));
+    assertTrue(text.contains("test_entries 42\n"));
+  }
+
+  /**
+   * A gauge must only be unregistered by the callback it is currently registered with
+   */
+  @Test
+  public void unregistersOnlyCurrentCallbacks() {
+    MetricsRegistry registry = new MetricsRegistry();
+    Supplier<Integer> first = () -> 1;
+    Supplier<Integer> second = () -> 2;
+    registry.registerGauge("test_entries", "Number of entries", first);
+    registry.registerGauge("test_entries", "Number of entries", second);
+
+    registry.unregister("test_entries", first);
+    assertTrue(registry.toPrometheusText().contains("test_entries 2\n"));
+    registry.unregister("test_entries", second);
+    assertFalse(registry.toPrometheusText().contains("test_entries"));
+  }
+
+}
@@ -0,0 +1,97 @@
+package i5.las2peer.services.gitHubProxyService.traceUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.Test;
+
+/**
+ * Tests the feedback cache and the circuit breaker of the {@link ModelCheck}
+ */
+public class ModelCheckTest {
+
+  private static final ObjectId GUIDANCES =
+      ObjectId.fromString("0123456789012345678901234567890123456789");
+
+  @SuppressWarnings("unchecked")
+  private static HashMap<String, JSONObject> tracedFiles(String content) {
+    JSONObject tracedFile = new JSONObject();
+    tracedFile.put("content", content);
+    tracedFile.put("fileTraces", new JSONObject());
+    HashMap<String, JSONObject> tracedFiles = new HashMap<String, JSONObject>();
+    tracedFiles.put("widget.xml", tracedFile);
+    return tracedFiles;
+  }
+
+  /**
+   * Unchanged files must not be checked again
+   */
+  @Test
+  public void remembersFeedback() throws Exception {
+    final AtomicInteger checks = new AtomicInteger();
+    ModelCheck modelCheck = new ModelCheck((guidances, tracedFiles) -> {
+      checks.incrementAndGet();
+      return new JSONArray();
+    }, 16, 10000, 3, 10000);
+
+    modelCheck.check(GUIDANCES, () -> new JSONObject(), tracedFiles("a"));
+    modelCheck.check(GUIDANCES, () -> {
+      throw new AssertionError("guidances loaded again");
+    }, tracedFiles("a"));
+    assertEquals(1, checks.get());
+    assertEquals(1, modelCheck.getHits());
+
+    modelCheck.check(GUIDANCES, () -> new JSONObject(), tracedFiles("b"));
+    modelCheck.check(null, () -> new JSONObject(), tracedFiles("a"));
+    assertEquals(3, checks.get());
+  }
+
+  /**
+   * Repeated failures must open the circuit breaker, a successful probe must close it
+   */
+  @Test
+  public void failsFastWhileOpen() throws Exception {
+    final AtomicBoolean available = new AtomicBoolean(false);
+    final AtomicInteger checks = new AtomicInteger();
+    ModelCheck modelCheck = new ModelCheck((guidances, tracedFiles) -> {
+      checks.incrementAndGet();
+      if (!available.get()) {
+        throw new IOException("unavailable");
+      }
+      return new JSONArray();
+    }, 16, 10000, 2, 50);
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        modelCheck.check(GUIDANCES, () -> new JSONObject(), tracedFiles("a" + i));
+        fail("check succeeded");
+      } catch (IOException e) {
+        // expected
+      }
+    }
+    assertTrue(modelCheck.isOpen());
+
+    try {
+      modelCheck.check(GUIDANCES, () -> new JSONObject(), tracedFiles("b"));
+      fail("check called while open");
+    } catch (ModelCheck.UnavailableException e) {
+      assertEquals(2, checks.get());
+    }
+
+    Thread.sleep(60);
+    available.set(true);
+    modelCheck.check(GUIDANCES, () -> new JSONObject(), tracedFiles("b"));
+    assertFalse(modelCheck.isOpen());
+  }
+
+}
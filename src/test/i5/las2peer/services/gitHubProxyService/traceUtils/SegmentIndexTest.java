@@ -0,0 +1,81 @@
+package i5.las2peer.services.gitHubProxyService.traceUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Test;
+
+/**
+ * Tests the lookup and the incremental rebuild of the {@link SegmentIndex}
+ */
+public class SegmentIndexTest {
+
+  private static final ObjectId TREE = id(1);
+  private static final ObjectId NEW_TREE = id(2);
+  private static final ObjectId APP_TRACES = id(3);
+  private static final ObjectId WIDGET_TRACES = id(4);
+  private static final ObjectId NEW_WIDGET_TRACES = id(5);
+
+  private static ObjectId id(int value) {
+    byte[] raw = new byte[20];
+    raw[19] = (byte) value;
+    return ObjectId.fromRaw(raw);
+  }
+
+  private static JSONObject parse(String json) throws Exception {
+    return (JSONObject) new JSONParser().parse(json.replace('\'', '"'));
+  }
+
+  /**
+   * Model elements must be navigated to the first segment of their first file, and only changed
+   * trace files must be loaded when a new tree is indexed
+   */
+  @Test
+  public void indexesSegmentsIncrementally() throws Exception {
+    final Map<ObjectId, JSONObject> traces = new HashMap<ObjectId, JSONObject>();
+    traces.put(APP_TRACES, parse("{'traces':{'m1':{'segments':['s1','s2']}}}"));
+    traces.put(WIDGET_TRACES, parse("{'traces':{'m2':{'segments':['s3']}}}"));
+    traces.put(NEW_WIDGET_TRACES, parse("{'traces':{'m2':{'segments':['s4']}}}"));
+    final List<ObjectId> loaded = new ArrayList<ObjectId>();
+    SegmentIndex.TraceLoader loader = traceFileId -> {
+      loaded.add(traceFileId);
+      return traces.get(traceFileId);
+    };
+
+    TraceModel traceModel = new TraceModel(id(6),
+        parse("{'modelsToFile':{'m1':{'files':['app.js','widget.xml']},"
+            + "'m2':{'files':['widget.xml']},'m3':{'files':['widget.xml']}}}"));
+    Map<String, ObjectId> traceFileIds = new HashMap<String, ObjectId>();
+    traceFileIds.put("app.js", APP_TRACES);
+    traceFileIds.put("widget.xml", WIDGET_TRACES);
+
+    SegmentIndex index = SegmentIndex.build(TREE, traceModel, traceFileIds, loader, null);
+    assertEquals(TREE, index.getTreeId());
+    assertEquals("app.js", index.get("m1").getFileName());
+    assertEquals(Arrays.asList("s1", "s2"), index.get("m1").getSegmentIds());
+    assertEquals("s3", index.get("m2").getSegmentIds().get(0));
+    // m3 has no traces in its file
+    assertNull(index.get("m3"));
+    assertNull(index.get("unknown"));
+
+    loaded.clear();
+    traceFileIds.put("widget.xml", NEW_WIDGET_TRACES);
+    SegmentIndex newIndex =
+        SegmentIndex.build(NEW_TREE, traceModel, traceFileIds, loader, index);
+    assertEquals(Arrays.asList(NEW_WIDGET_TRACES), loaded);
+    assertEquals("s4", newIndex.get("m2").getSegmentIds().get(0));
+    assertEquals("s1", newIndex.get("m1").getSegmentIds().get(0));
+    // the previous index is not modified
+    assertEquals("s3", index.get("m2").getSegmentIds().get(0));
+  }
+
+}
@@ -0,0 +1,83 @@
+package i5.las2peer.services.gitHubProxyService.traceUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.json.simple.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the keys, the eviction and the statistics of the {@link TraceModelCache}
+ */
+public class TraceModelCacheTest {
+
+  private Repository repository;
+  private ObjectId first;
+  private ObjectId second;
+  private ObjectId third;
+
+  @Before
+  public void createBlobs() throws Exception {
+    repository = new InMemoryRepository(new DfsRepositoryDescription("traces"));
+    try (ObjectInserter inserter = repository.newObjectInserter()) {
+      first = insert(inserter, "{\"id\":\"first\"}");
+      second = insert(inserter, "{\"id\":\"second\"}");
+      third = insert(inserter, "{\"id\":\"third\"}");
+      inserter.flush();
+    }
+  }
+
+  private static ObjectId insert(ObjectInserter inserter, String json) throws Exception {
+    return inserter.insert(Constants.OBJ_BLOB, json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * A blob must be parsed once per repository, and different blobs must not share an entry
+   */
+  @Test
+  public void separatesRepositoriesAndBlobs() throws Exception {
+    TraceModelCache cache = new TraceModelCache(8);
+
+    JSONObject parsed = cache.get("repo", repository, first);
+    assertEquals("first", parsed.get("id"));
+    assertSame(parsed, cache.get("repo", repository, first));
+    assertEquals("second", cache.get("repo", repository, second).get("id"));
+    // the same blob of another repository is parsed again
+    assertNotSame(parsed, cache.get("other", repository, first));
+
+    assertEquals(3, cache.size());
+    assertEquals(1, cache.getHits());
+    assertEquals(3, cache.getMisses());
+  }
+
+  /**
+   * The least recently used entry must be evicted first
+   */
+  @Test
+  public void evictsLeastRecentlyUsed() throws Exception {
+    TraceModelCache cache = new TraceModelCache(2);
+
+    JSONObject parsedFirst = cache.get("repo", repository, first);
+    JSONObject parsedSecond = cache.get("repo", repository, second);
+    // using the first blob again makes the second one the least recently used
+    assertSame(parsedFirst, cache.get("repo", repository, first));
+    cache.get("repo", repository, third);
+
+    assertEquals(2, cache.size());
+    assertSame(parsedFirst, cache.get("repo", repository, first));
+    assertNotSame(parsedSecond, cache.get("repo", repository, second));
+    assertEquals(2, cache.getHits());
+    assertEquals(4, cache.getMisses());
+  }
+
+}
@@ -0,0 +1,59 @@
+package i5.las2peer.services.gitHubProxyService.traceUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Test;
+
+/**
+ * Tests the lookups of traced files and folders of the {@link TraceModel}
+ */
+public class TraceModelTest {
+
+  private static TraceModel parse(String json) throws Exception {
+    return new TraceModel(null, (JSONObject) new JSONParser().parse(json.replace('\'', '"')));
+  }
+
+  /**
+   * Traced files and the folders containing them must be found
+   */
+  @Test
+  public void findsTracedFilesAndFolders() throws Exception {
+    TraceModel traceModel = parse("{'id':'generation','tracedFiles':['widget.xml',"
+        + "'js/applicationScript.js','src/main/java/Service.java']}");
+
+    assertEquals("generation", traceModel.getGenerationId());
+    assertEquals(Arrays.asList("widget.xml", "js/applicationScript.js",
+        "src/main/java/Service.java"), new ArrayList<String>(traceModel.getTracedFiles()));
+    assertTrue(traceModel.isTraced("js/applicationScript.js"));
+    assertFalse(traceModel.isTraced("js"));
+    assertFalse(traceModel.isTraced("README.md"));
+
+    assertTrue(traceModel.hasTracedFiles(""));
+    assertTrue(traceModel.hasTracedFiles("js"));
+    assertTrue(traceModel.hasTracedFiles("src/main"));
+    assertTrue(traceModel.hasTracedFiles("src/main/java"));
+    assertFalse(traceModel.hasTracedFiles("src/test"));
+    assertFalse(traceModel.hasTracedFiles("traces"));
+    // files are no folders
+    assertFalse(traceModel.hasTracedFiles("widget.xml"));
+  }
+
+  /**
+   * A component without a trace model has no traced files
+   */
+  @Test
+  public void emptyTraceModelHasNoTracedFiles() {
+    TraceModel traceModel = TraceModel.empty();
+    assertEquals(0, traceModel.getTracedFiles().size());
+    assertEquals(0, traceModel.getModelsToFiles().size());
+    assertFalse(traceModel.hasTracedFiles(""));
+  }
+
+}